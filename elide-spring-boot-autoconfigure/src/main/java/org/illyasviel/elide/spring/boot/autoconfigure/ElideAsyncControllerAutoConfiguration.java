@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.autoconfigure;
+
+import static org.illyasviel.elide.spring.boot.autoconfigure.ElideControllerAutoConfiguration.JSON_API_CONTENT_TYPE;
+import static org.illyasviel.elide.spring.boot.autoconfigure.ElideControllerAutoConfiguration.JSON_API_MEDIA_TYPE_UTF8;
+import static org.illyasviel.elide.spring.boot.autoconfigure.ElideControllerAutoConfiguration.getJsonApiPath;
+import static org.illyasviel.elide.spring.boot.autoconfigure.ElideControllerAutoConfiguration.httpCache;
+import static org.illyasviel.elide.spring.boot.autoconfigure.ElideControllerAutoConfiguration.responseStatus;
+
+import com.yahoo.elide.Elide;
+import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.graphql.GraphQLRequestScope;
+import java.security.Principal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import javax.servlet.http.HttpServletRequest;
+import org.illyasviel.elide.spring.boot.execution.ElideRequestExecutor;
+import org.illyasviel.elide.spring.boot.graphql.GraphQLHandle;
+import org.illyasviel.elide.spring.boot.jsonapi.JsonApiHttpCache;
+import org.illyasviel.elide.spring.boot.jsonapi.JsonApiPathMatcher;
+import org.illyasviel.elide.spring.boot.jsonapi.JsonApiResponse;
+import org.illyasviel.elide.spring.boot.jsonapi.ServletParameterMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Elide Async Controller AutoConfiguration.
+ * Same controllers as {@link ElideControllerAutoConfiguration}, the requests run on an
+ * {@link ElideRequestExecutor} and are answered with 503 when it is full.
+ *
+ * @author olOwOlo
+ */
+@Configuration
+@EnableConfigurationProperties(ElideProperties.class)
+@AutoConfigureAfter(ElideAutoConfiguration.class)
+@ConditionalOnExpression(ElideAsyncControllerAutoConfiguration.ASYNC_ENABLED
+    + " and ${elide.mvc.enable:true}")
+public class ElideAsyncControllerAutoConfiguration {
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(ElideAsyncControllerAutoConfiguration.class);
+
+  static final String ASYNC_ENABLED =
+      "${elide.execution.async:false} or ${elide.execution.virtual-threads:false}";
+
+  static final String SERVICE_UNAVAILABLE_BODY = "{\"errors\":[\"Server is busy\"]}";
+
+  /**
+   * Constructor, the import and the export have no async controller.
+   */
+  @Autowired
+  public ElideAsyncControllerAutoConfiguration(ElideProperties elideProperties) {
+    if (elideProperties.getNdjsonImport().isEnabled()) {
+      logger.warn("elide.ndjson-import.enabled is ignored with elide.execution.async "
+          + "or elide.execution.virtual-threads.");
+    }
+    if (elideProperties.getExport().isEnabled()) {
+      logger.warn("elide.export.enabled is ignored with elide.execution.async "
+          + "or elide.execution.virtual-threads.");
+    }
+  }
+
+  /**
+   * Configure the executor of the requests.
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  public ElideRequestExecutor elideRequestExecutor(ElideProperties elideProperties) {
+    ElideProperties.ExecutionProperties execution = elideProperties.getExecution();
+    if (execution.isVirtualThreads()) {
+      return ElideRequestExecutor
+          .virtualThreads(execution.getPoolSize(), execution.getQueueCapacity());
+    }
+    return new ElideRequestExecutor(execution.getPoolSize(), execution.getQueueCapacity());
+  }
+
+  @Configuration
+  @RestController
+  @RequestMapping(value = "${elide.prefix:/api}", produces = JSON_API_CONTENT_TYPE)
+  @ConditionalOnProperty(prefix = "elide.mvc", value = "get",
+      havingValue = "true", matchIfMissing = true)
+  @ConditionalOnExpression(ASYNC_ENABLED)
+  public static class ElideAsyncGetController {
+
+    private final Elide elide;
+    private final JsonApiPathMatcher pathMatcher;
+    private final JsonApiHttpCache httpCache;
+    private final ElideRequestExecutor executor;
+
+    /**
+     * Constructor.
+     */
+    @Autowired
+    public ElideAsyncGetController(Elide elide, ElideProperties elideProperties,
+        ElideRequestExecutor executor) {
+      this.elide = elide;
+      this.pathMatcher = new JsonApiPathMatcher(elideProperties.getPrefix());
+      this.httpCache = httpCache(elideProperties);
+      this.executor = executor;
+    }
+
+    /**
+     * Elide [GET] controller.
+     */
+    @GetMapping(value = "/**")
+    public CompletableFuture<ResponseEntity<Object>> elideGet(HttpServletRequest request,
+        Principal authentication) {
+      String path = getJsonApiPath(request, pathMatcher);
+      // parsed on the container thread
+      ServletParameterMap queryParams = new ServletParameterMap(request.getParameterMap());
+      return submit(executor, () -> {
+        ElideResponse response = elide.get(path, queryParams, authentication);
+        if (response instanceof JsonApiResponse
+            && ((JsonApiResponse) response).getDocument() != null) {
+          if (httpCache != null && response.getResponseCode() == HttpStatus.OK.value()) {
+            return httpCache.toResponseEntity(
+                responseStatus(response).contentType(JSON_API_MEDIA_TYPE_UTF8), path,
+                (JsonApiResponse) response);
+          }
+          // written by the json message converter, without a String copy
+          return responseStatus(response)
+              .body(((JsonApiResponse) response).getDocument());
+        }
+        return toResponseEntity(response);
+      });
+    }
+  }
+
+  @Configuration
+  @RestController
+  @RequestMapping(value = "${elide.prefix:/api}", produces = JSON_API_CONTENT_TYPE)
+  @ConditionalOnProperty(prefix = "elide.mvc", value = "post",
+      havingValue = "true", matchIfMissing = true)
+  @ConditionalOnExpression(ASYNC_ENABLED)
+  public static class ElideAsyncPostController {
+
+    private final Elide elide;
+    private final JsonApiPathMatcher pathMatcher;
+    private final ElideRequestExecutor executor;
+
+    /**
+     * Constructor.
+     */
+    @Autowired
+    public ElideAsyncPostController(Elide elide, ElideProperties elideProperties,
+        ElideRequestExecutor executor) {
+      this.elide = elide;
+      this.pathMatcher = new JsonApiPathMatcher(elideProperties.getPrefix());
+      this.executor = executor;
+    }
+
+    /**
+     * Elide [POST] controller.
+     */
+    @PostMapping(value = "/**", consumes = JSON_API_CONTENT_TYPE)
+    public CompletableFuture<ResponseEntity<Object>> elidePost(@RequestBody String body,
+        HttpServletRequest request, Principal authentication) {
+      String path = getJsonApiPath(request, pathMatcher);
+      return submit(executor, () -> toResponseEntity(elide.post(path, body, authentication)));
+    }
+  }
+
+  @Configuration
+  @RestController
+  @RequestMapping(value = "${elide.prefix:/api}", produces = JSON_API_CONTENT_TYPE)
+  @ConditionalOnProperty(prefix = "elide.mvc", value = "patch",
+      havingValue = "true", matchIfMissing = true)
+  @ConditionalOnExpression(ASYNC_ENABLED)
+  public static class ElideAsyncPatchController {
+
+    private final Elide elide;
+    private final JsonApiPathMatcher pathMatcher;
+    private final ElideRequestExecutor executor;
+
+    /**
+     * Constructor.
+     */
+    @Autowired
+    public ElideAsyncPatchController(Elide elide, ElideProperties elideProperties,
+        ElideRequestExecutor executor) {
+      this.elide = elide;
+      this.pathMatcher = new JsonApiPathMatcher(elideProperties.getPrefix());
+      this.executor = executor;
+    }
+
+    /**
+     * Elide [PATCH] controller.
+     */
+    @PatchMapping(value = "/**", consumes = JSON_API_CONTENT_TYPE)
+    public CompletableFuture<ResponseEntity<Object>> elidePatch(@RequestBody String body,
+        HttpServletRequest request, Principal authentication) {
+      String path = getJsonApiPath(request, pathMatcher);
+      return submit(executor, () -> toResponseEntity(elide.patch(JSON_API_CONTENT_TYPE,
+          JSON_API_CONTENT_TYPE, path, body, authentication)));
+    }
+  }
+
+  @Configuration
+  @RestController
+  @RequestMapping(value = "${elide.prefix:/api}", produces = JSON_API_CONTENT_TYPE)
+  @ConditionalOnProperty(prefix = "elide.mvc", value = "delete",
+      havingValue = "true", matchIfMissing = true)
+  @ConditionalOnExpression(ASYNC_ENABLED)
+  public static class ElideAsyncDeleteController {
+
+    private final Elide elide;
+    private final JsonApiPathMatcher pathMatcher;
+    private final ElideRequestExecutor executor;
+
+    /**
+     * Constructor.
+     */
+    @Autowired
+    public ElideAsyncDeleteController(Elide elide, ElideProperties elideProperties,
+        ElideRequestExecutor executor) {
+      this.elide = elide;
+      this.pathMatcher = new JsonApiPathMatcher(elideProperties.getPrefix());
+      this.executor = executor;
+    }
+
+    /**
+     * Elide [DELETE](relationships) controller.
+     */
+    @DeleteMapping(value = "/**", consumes = JSON_API_CONTENT_TYPE)
+    public CompletableFuture<ResponseEntity<Object>> elideDeleteRelationship(
+        @RequestBody String body, HttpServletRequest request, Principal authentication) {
+      String path = getJsonApiPath(request, pathMatcher);
+      return submit(executor, () -> toResponseEntity(elide.delete(path, body, authentication)));
+    }
+
+    /**
+     * Elide [DELETE](entity) controller.
+     */
+    @DeleteMapping(value = "/**")
+    public CompletableFuture<ResponseEntity<Object>> elideDelete(HttpServletRequest request,
+        Principal authentication) {
+      String path = getJsonApiPath(request, pathMatcher);
+      return submit(executor, () -> toResponseEntity(elide.delete(path, null, authentication)));
+    }
+  }
+
+  @Configuration
+  @RestController
+  @RequestMapping(value = "${elide.prefix:/api}")
+  @ConditionalOnClass({ GraphQLRequestScope.class })
+  @ConditionalOnProperty(prefix = "elide.mvc", value = "graphql",
+      havingValue = "true", matchIfMissing = true)
+  @ConditionalOnExpression(ASYNC_ENABLED)
+  public static class ElideAsyncGraphQLController {
+
+    private final GraphQLHandle graphQLHandle;
+    private final ElideRequestExecutor executor;
+
+    @Autowired
+    public ElideAsyncGraphQLController(GraphQLHandle graphQLHandle,
+        ElideRequestExecutor executor) {
+      this.graphQLHandle = graphQLHandle;
+      this.executor = executor;
+    }
+
+    /**
+     * Elide [GraphQL] controller.
+     */
+    @PostMapping(
+        value = "/graphql",
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<Object>> graphql(
+        @RequestBody String graphQLDocument, Principal auth) {
+      return submit(executor, () -> toResponseEntity(graphQLHandle.post(graphQLDocument, auth)));
+    }
+
+    /**
+     * Elide [GraphQL] controller for queries, mostly used with persisted queries.
+     */
+    @GetMapping(value = "/graphql", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<Object>> graphqlGet(
+        @RequestParam(required = false) String query,
+        @RequestParam(required = false) String operationName,
+        @RequestParam(required = false) String variables,
+        @RequestParam(required = false) String extensions,
+        Principal auth) {
+      return submit(executor, () -> toResponseEntity(graphQLHandle
+          .get(query, operationName, variables, extensions, auth)));
+    }
+  }
+
+  private static CompletableFuture<ResponseEntity<Object>> submit(ElideRequestExecutor executor,
+      Supplier<ResponseEntity<Object>> request) {
+    try {
+      return executor.submit(request);
+    } catch (RejectedExecutionException e) {
+      logger.debug("Elide request executor is full, rejected request.");
+      return CompletableFuture.completedFuture(ResponseEntity
+          .status(HttpStatus.SERVICE_UNAVAILABLE)
+          .contentType(MediaType.APPLICATION_JSON)
+          .body(SERVICE_UNAVAILABLE_BODY));
+    }
+  }
+
+  private static ResponseEntity<Object> toResponseEntity(ElideResponse response) {
+    return responseStatus(response).body(response.getBody());
+  }
+}
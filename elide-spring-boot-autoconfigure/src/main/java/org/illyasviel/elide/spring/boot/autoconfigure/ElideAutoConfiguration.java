@@ -19,33 +19,79 @@ package org.illyasviel.elide.spring.boot.autoconfigure;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yahoo.elide.Elide;
 import com.yahoo.elide.ElideSettingsBuilder;
-import com.yahoo.elide.core.DataStore;
 import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.filter.dialect.RSQLFilterDialect;
 import com.yahoo.elide.functions.LifeCycleHook;
+import com.yahoo.elide.graphql.GraphQLRequestScope;
 import com.yahoo.elide.jsonapi.JsonApiMapper;
 import com.yahoo.elide.security.checks.Check;
+import graphql.execution.preparsed.NoOpPreparsedDocumentProvider;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import org.atteo.classindex.ClassIndex;
 import org.hibernate.ScrollMode;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
 import org.illyasviel.elide.spring.boot.annotation.ElideCheck;
 import org.illyasviel.elide.spring.boot.annotation.ElideHook;
+import org.illyasviel.elide.spring.boot.cache.InMemoryRegionFactory;
+import org.illyasviel.elide.spring.boot.cache.SecondLevelCacheIntegrator;
+import org.illyasviel.elide.spring.boot.datastore.CountCache;
+import org.illyasviel.elide.spring.boot.datastore.DialectRowCountEstimator;
+import org.illyasviel.elide.spring.boot.datastore.EntityChangeListener;
+import org.illyasviel.elide.spring.boot.datastore.RowCountEstimator;
 import org.illyasviel.elide.spring.boot.datastore.SpringHibernateDataStore;
+import org.illyasviel.elide.spring.boot.graphql.CachingPreparsedDocumentProvider;
+import org.illyasviel.elide.spring.boot.graphql.FileSystemPersistedQueryStore;
+import org.illyasviel.elide.spring.boot.graphql.GraphQLHandle;
+import org.illyasviel.elide.spring.boot.graphql.InMemoryPersistedQueryStore;
+import org.illyasviel.elide.spring.boot.graphql.PersistedQueryStore;
+import org.illyasviel.elide.spring.boot.invalidation.ElideCacheInvalidationBus;
+import org.illyasviel.elide.spring.boot.invalidation.InMemoryCacheInvalidationBus;
+import org.illyasviel.elide.spring.boot.invalidation.TcpCacheInvalidationBus;
+import org.illyasviel.elide.spring.boot.jsonapi.JsonApiResponseCache;
+import org.illyasviel.elide.spring.boot.jsonapi.KeysetPagination;
+import org.illyasviel.elide.spring.boot.jsonapi.SpringElide;
+import org.illyasviel.elide.spring.boot.metrics.ElideMetrics;
+import org.illyasviel.elide.spring.boot.metrics.MicrometerElideMetrics;
+import org.illyasviel.elide.spring.boot.statistics.RequestStatisticsCollector;
+import org.illyasviel.elide.spring.boot.statistics.RequestStatisticsMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.transaction.PlatformTransactionManager;
 
 /**
@@ -70,19 +116,43 @@ public class ElideAutoConfiguration {
       ApplicationContext context,
       EntityManager entityManager,
       ObjectMapper objectMapper,
-      ElideProperties elideProperties) {
+      ElideProperties elideProperties,
+      ObjectProvider<ElideMetrics> elideMetrics,
+      ObjectProvider<JsonApiResponseCache> responseCache,
+      ObjectProvider<ElideCacheInvalidationBus> invalidationBus,
+      ObjectProvider<CountCache> countCache,
+      ObjectProvider<RowCountEstimator> rowCountEstimator) {
     ConcurrentHashMap<String, Class<? extends Check>> checks = new ConcurrentHashMap<>();
 
     // scan checks
     scanChecks(checks);
 
     EntityDictionary entityDictionary = new EntityDictionary(checks);
-    RSQLFilterDialect rsqlFilterDialect = new RSQLFilterDialect(entityDictionary);
+    final RSQLFilterDialect rsqlFilterDialect = new RSQLFilterDialect(entityDictionary);
+
+    // A scrolled result is hydrated row by row, so the relationships of a page can not be loaded
+    // in batches. Elide keeps the whole page in memory anyway.
+    boolean isScrollEnabled = elideProperties.getBatchFetchSize() <= 0;
+    ElideMetrics metrics = elideMetrics.getIfAvailable(() -> ElideMetrics.NOOP);
+    SpringHibernateDataStore springDataStore = new SpringHibernateDataStore(txManager,
+        beanFactory, entityManager, elideProperties, isScrollEnabled, ScrollMode.FORWARD_ONLY);
+    springDataStore.setMetrics(metrics);
+    if (elideProperties.getCount().isApproximate()) {
+      springDataStore.setRowCountEstimator(rowCountEstimator.getIfAvailable());
+    }
 
-    DataStore springDataStore = new SpringHibernateDataStore(txManager, beanFactory, entityManager,
-        elideProperties, true, ScrollMode.FORWARD_ONLY);
+    ElideProperties.StatisticsProperties statistics = elideProperties.getStatistics();
+    RequestStatisticsMonitor statisticsMonitor = statistics.isEnabled()
+        ? new RequestStatisticsMonitor(statistics.getMaxStatements(),
+            statistics.getMaxRepeatedStatements(), statistics.isResponseHeader(), metrics)
+        : null;
 
-    Elide elide = new Elide(new ElideSettingsBuilder(springDataStore)
+    JsonApiResponseCache cache = responseCache.getIfAvailable();
+    CountCache counts = countCache.getIfAvailable();
+    springDataStore.setCountCache(counts);
+    addInvalidation(springDataStore, invalidationBus.getIfAvailable(), cache, counts);
+
+    Elide elide = new SpringElide(new ElideSettingsBuilder(springDataStore)
         .withJsonApiMapper(new JsonApiMapper(entityDictionary, objectMapper))
         .withEntityDictionary(entityDictionary)
         .withJoinFilterDialect(rsqlFilterDialect)
@@ -90,7 +160,8 @@ public class ElideAutoConfiguration {
         .withDefaultPageSize(elideProperties.getDefaultPageSize())
         .withDefaultMaxPageSize(elideProperties.getMaxPageSize())
         .withReturnErrorObjects(elideProperties.isReturnErrorObjects())
-        .build());
+        .build(), metrics, statisticsMonitor, cache, elideProperties.isKeysetPagination()
+        ? new KeysetPagination(elideProperties.getPrefix()) : null);
 
     // scan life cycle hooks
     scanLifeCycleHook(entityDictionary, context);
@@ -98,6 +169,230 @@ public class ElideAutoConfiguration {
     return elide;
   }
 
+  /**
+   * Invalidate the caches after the commits of this node, or of every node through the bus.
+   */
+  private void addInvalidation(SpringHibernateDataStore springDataStore,
+      ElideCacheInvalidationBus bus, EntityChangeListener... caches) {
+    if (bus != null) {
+      springDataStore.addChangeListener(bus::publish);
+    }
+    for (EntityChangeListener cache : caches) {
+      if (cache == null) {
+        continue;
+      }
+      if (bus != null) {
+        bus.subscribe(cache);
+      } else {
+        springDataStore.addChangeListener(cache);
+      }
+    }
+  }
+
+  /**
+   * Batch the loading of relationships, so walking a relationship of a page of N resources
+   * costs one query instead of N. Order the writes for JDBC batching. Hook the collection of
+   * the request statistics and the second-level cache of the Elide models.
+   */
+  @Bean
+  public HibernatePropertiesCustomizer elideHibernatePropertiesCustomizer(
+      ElideProperties elideProperties) {
+    return hibernateProperties -> {
+      if (elideProperties.getBatchFetchSize() > 0) {
+        hibernateProperties.putIfAbsent(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE,
+            String.valueOf(elideProperties.getBatchFetchSize()));
+      }
+      if (elideProperties.getBulkWrite().isEnabled()) {
+        hibernateProperties.putIfAbsent(AvailableSettings.ORDER_INSERTS, "true");
+        hibernateProperties.putIfAbsent(AvailableSettings.ORDER_UPDATES, "true");
+        hibernateProperties.putIfAbsent(AvailableSettings.BATCH_VERSIONED_DATA, "true");
+      }
+      List<Integrator> integrators = new ArrayList<>();
+      if (elideProperties.getStatistics().isEnabled()) {
+        RequestStatisticsCollector collector = new RequestStatisticsCollector();
+        if (hibernateProperties.putIfAbsent(AvailableSettings.STATEMENT_INSPECTOR, collector)
+            != null) {
+          logger.warn("A statement inspector is configured already, "
+              + "the statements of the Elide requests are not counted.");
+        }
+        integrators.add(collector);
+      }
+      ElideProperties.SecondLevelCacheProperties secondLevelCache =
+          elideProperties.getSecondLevelCache();
+      if (secondLevelCache.isEnabled()) {
+        hibernateProperties.putIfAbsent(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+        hibernateProperties.putIfAbsent(AvailableSettings.USE_QUERY_CACHE,
+            String.valueOf(secondLevelCache.isQueryCache()));
+        if (hibernateProperties.putIfAbsent(AvailableSettings.CACHE_REGION_FACTORY,
+            InMemoryRegionFactory.class.getName()) == null) {
+          hibernateProperties.put(InMemoryRegionFactory.MAXIMUM_SIZE,
+              String.valueOf(secondLevelCache.getMaximumSize()));
+          hibernateProperties.put(InMemoryRegionFactory.TIME_TO_LIVE,
+              String.valueOf(secondLevelCache.getTimeToLive().toMillis()));
+        }
+        integrators.add(new SecondLevelCacheIntegrator(secondLevelCache.getModels(),
+            secondLevelCache.getConcurrencyStrategy()));
+      }
+      if (!integrators.isEmpty() && hibernateProperties.putIfAbsent(
+          EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+          (IntegratorProvider) () -> integrators) != null) {
+        logger.warn("An integrator provider is configured already, the entities loaded "
+            + "by the Elide requests are neither counted nor cached.");
+      }
+    };
+  }
+
+  /**
+   * Configure the cache of the JSON-API GET responses.
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty(prefix = "elide.response-cache", value = "enabled",
+      havingValue = "true")
+  public JsonApiResponseCache elideResponseCache(ElideProperties elideProperties) {
+    ElideProperties.ResponseCacheProperties cache = elideProperties.getResponseCache();
+    return new JsonApiResponseCache(cache.getMaximumSize(), cache.getTimeToLive(),
+        cache.getModels());
+  }
+
+  /**
+   * Configure the cache of the page totals.
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty(prefix = "elide.count", value = "cache", havingValue = "true")
+  public CountCache elideCountCache(ElideProperties elideProperties) {
+    ElideProperties.CountProperties count = elideProperties.getCount();
+    return new CountCache(count.getMaximumSize(), count.getTimeToLive());
+  }
+
+  /**
+   * Configure the estimate of the page totals from the statistics of the database.
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty(prefix = "elide.count", value = "approximate", havingValue = "true")
+  public RowCountEstimator elideRowCountEstimator(EntityManagerFactory entityManagerFactory) {
+    return new DialectRowCountEstimator(entityManagerFactory
+        .unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect());
+  }
+
+  /**
+   * Configure the bus carrying the committed changes to the caches of every node.
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnExpression("${elide.response-cache.enabled:false} or ${elide.count.cache:false}")
+  public ElideCacheInvalidationBus elideCacheInvalidationBus(ElideProperties elideProperties)
+      throws IOException {
+    ElideProperties.InvalidationProperties invalidation = elideProperties.getCacheInvalidation();
+    switch (invalidation.getBus()) {
+      case TCP:
+        if (invalidation.getPort() <= 0) {
+          throw new IllegalArgumentException(
+              "elide.cache-invalidation.port is required by the tcp bus.");
+        }
+        List<InetSocketAddress> peers = new ArrayList<>();
+        for (String peer : invalidation.getPeers()) {
+          int separator = peer.lastIndexOf(':');
+          if (separator < 0) {
+            throw new IllegalArgumentException("Invalid peer [" + peer + "], host:port expected.");
+          }
+          peers.add(new InetSocketAddress(peer.substring(0, separator),
+              Integer.parseInt(peer.substring(separator + 1))));
+        }
+        return new TcpCacheInvalidationBus(
+            new InetSocketAddress(invalidation.getBindAddress(), invalidation.getPort()), peers,
+            invalidation.getWriteTimeout());
+      case MEMORY:
+      default:
+        return new InMemoryCacheInvalidationBus();
+    }
+  }
+
+  @Configuration
+  @ConditionalOnClass(MeterRegistry.class)
+  public static class ElideMetricsConfiguration {
+
+    /**
+     * Measure the requests and transactions when there is a MeterRegistry (e.g. actuator).
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ElideMetrics elideMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+        ElideProperties elideProperties) {
+      MeterRegistry registry = meterRegistry.getIfAvailable();
+      return registry == null
+          ? ElideMetrics.NOOP
+          : new MicrometerElideMetrics(registry, elideProperties.getMetrics().getOperationNames());
+    }
+  }
+
+  @Configuration
+  @ConditionalOnClass(GraphQLRequestScope.class)
+  public static class ElideGraphQLConfiguration {
+
+    /**
+     * Configure the GraphQL handle used by the GraphQL controller.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public GraphQLHandle graphQLHandle(Elide elide,
+        ElideProperties elideProperties,
+        PreparsedDocumentProvider preparsedDocumentProvider,
+        ObjectProvider<PersistedQueryStore> persistedQueryStore) {
+      ElideProperties.BatchProperties batch = elideProperties.getGraphql().getBatch();
+      ExecutorService batchExecutor = null;
+      if (batch.isParallel()) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            batch.getPoolSize(), batch.getPoolSize(), 60, TimeUnit.SECONDS,
+            batch.getQueueCapacity() > 0
+                ? new ArrayBlockingQueue<>(batch.getQueueCapacity())
+                : new SynchronousQueue<>(),
+            new CustomizableThreadFactory("elide-graphql-batch-"),
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        batchExecutor = executor;
+      }
+      return new GraphQLHandle(elide, preparsedDocumentProvider,
+          persistedQueryStore.getIfAvailable(), batchExecutor, batch.getMaxConcurrency());
+    }
+
+    /**
+     * Configure the cache of parsed and validated GraphQL documents.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public PreparsedDocumentProvider preparsedDocumentProvider(ElideProperties elideProperties) {
+      ElideProperties.DocumentCacheProperties documentCache =
+          elideProperties.getGraphql().getDocumentCache();
+      if (!documentCache.isEnabled()) {
+        return NoOpPreparsedDocumentProvider.INSTANCE;
+      }
+      return new CachingPreparsedDocumentProvider(documentCache.getMaximumWeight());
+    }
+
+    /**
+     * Configure the store of automatic persisted queries.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "elide.graphql.persisted-query", value = "enabled",
+        havingValue = "true", matchIfMissing = true)
+    public PersistedQueryStore persistedQueryStore(ElideProperties elideProperties) {
+      ElideProperties.PersistedQueryProperties persistedQuery =
+          elideProperties.getGraphql().getPersistedQuery();
+      switch (persistedQuery.getStore()) {
+        case FILE:
+          return new FileSystemPersistedQueryStore(Paths.get(persistedQuery.getDirectory()),
+              persistedQuery.getMaximumSize());
+        case MEMORY:
+        default:
+          return new InMemoryPersistedQueryStore(persistedQuery.getMaximumSize());
+      }
+    }
+  }
+
   /**
    * Side effect: populate checks.
    */
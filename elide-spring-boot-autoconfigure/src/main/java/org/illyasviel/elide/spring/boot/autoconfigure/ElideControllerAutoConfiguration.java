@@ -18,25 +18,38 @@ package org.illyasviel.elide.spring.boot.autoconfigure;
 
 import com.yahoo.elide.Elide;
 import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.core.HttpStatus;
 import com.yahoo.elide.graphql.GraphQLRequestScope;
+import java.io.IOException;
 import java.security.Principal;
-import java.util.Map;
+import java.util.List;
+import javax.persistence.EntityManager;
 import javax.servlet.http.HttpServletRequest;
-import javax.ws.rs.core.MultivaluedHashMap;
+import javax.servlet.http.HttpServletResponse;
 import org.illyasviel.elide.spring.boot.graphql.GraphQLHandle;
+import org.illyasviel.elide.spring.boot.jsonapi.CollectionExporter;
+import org.illyasviel.elide.spring.boot.jsonapi.JsonApiHttpCache;
+import org.illyasviel.elide.spring.boot.jsonapi.JsonApiPathMatcher;
+import org.illyasviel.elide.spring.boot.jsonapi.JsonApiResponse;
+import org.illyasviel.elide.spring.boot.jsonapi.NdjsonImporter;
+import org.illyasviel.elide.spring.boot.jsonapi.ServletParameterMap;
+import org.illyasviel.elide.spring.boot.statistics.RequestStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -55,39 +68,71 @@ import org.springframework.web.servlet.HandlerMapping;
 @AutoConfigureAfter(ElideAutoConfiguration.class)
 @ConditionalOnProperty(prefix = "elide.mvc", value = "enable",
     havingValue = "true", matchIfMissing = true)
+@ConditionalOnExpression(ElideControllerAutoConfiguration.SYNC_ENABLED)
 public class ElideControllerAutoConfiguration {
 
   private static final Logger logger = LoggerFactory
       .getLogger(ElideControllerAutoConfiguration.class);
 
   static final String JSON_API_CONTENT_TYPE = "application/vnd.api+json";
+  static final String JSON_API_CONTENT_TYPE_UTF8 = JSON_API_CONTENT_TYPE + ";charset=UTF-8";
+  static final MediaType JSON_API_MEDIA_TYPE_UTF8 =
+      MediaType.parseMediaType(JSON_API_CONTENT_TYPE_UTF8);
+  static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+  static final String CSV_CONTENT_TYPE = "text/csv";
+  static final String STATISTICS_HEADER = "X-Elide-Statistics";
+  static final String SYNC_ENABLED =
+      "!(" + ElideAsyncControllerAutoConfiguration.ASYNC_ENABLED + ")";
 
   @Configuration
   @RestController
   @RequestMapping(value = "${elide.prefix:/api}", produces = JSON_API_CONTENT_TYPE)
   @ConditionalOnProperty(prefix = "elide.mvc", value = "get",
       havingValue = "true", matchIfMissing = true)
+  @ConditionalOnExpression(SYNC_ENABLED)
   public static class ElideGetController {
 
     private final Elide elide;
-    private final ElideProperties elideProperties;
+    private final JsonApiPathMatcher pathMatcher;
+    private final JsonApiHttpCache httpCache;
 
+    /**
+     * Constructor.
+     */
     @Autowired
     public ElideGetController(Elide elide, ElideProperties elideProperties) {
       this.elide = elide;
-      this.elideProperties = elideProperties;
+      this.pathMatcher = new JsonApiPathMatcher(elideProperties.getPrefix());
+      this.httpCache = httpCache(elideProperties);
     }
 
     /**
-     * Elide [GET] controller.
+     * Elide [GET] controller, the document is written straight to the response
+     * unless it gets an ETag.
      */
     @GetMapping(value = "/**")
-    public ResponseEntity<String> elideGet(@RequestParam Map<String, String> allRequestParams,
-        HttpServletRequest request, Principal authentication) {
+    public ResponseEntity<Object> elideGet(HttpServletRequest request,
+        HttpServletResponse servletResponse, Principal authentication) throws IOException {
+      String path = getJsonApiPath(request, pathMatcher);
       ElideResponse response = elide
-          .get(getJsonApiPath(request, elideProperties.getPrefix()),
-              new MultivaluedHashMap<>(allRequestParams), authentication);
-      return ResponseEntity.status(response.getResponseCode()).body(response.getBody());
+          .get(path, new ServletParameterMap(request.getParameterMap()), authentication);
+      if (response instanceof JsonApiResponse
+          && ((JsonApiResponse) response).getDocument() != null) {
+        if (httpCache != null && response.getResponseCode() == HttpStatus.SC_OK) {
+          return httpCache.toResponseEntity(
+              responseStatus(response).contentType(JSON_API_MEDIA_TYPE_UTF8), path,
+              (JsonApiResponse) response);
+        }
+        servletResponse.setStatus(response.getResponseCode());
+        servletResponse.setContentType(JSON_API_CONTENT_TYPE_UTF8);
+        RequestStatistics statistics = RequestStatistics.takeCompleted();
+        if (statistics != null) {
+          servletResponse.setHeader(STATISTICS_HEADER, statistics.toString());
+        }
+        ((JsonApiResponse) response).writeTo(servletResponse.getOutputStream());
+        return null;
+      }
+      return responseStatus(response).body(response.getBody());
     }
   }
 
@@ -96,15 +141,16 @@ public class ElideControllerAutoConfiguration {
   @RequestMapping(value = "${elide.prefix:/api}", produces = JSON_API_CONTENT_TYPE)
   @ConditionalOnProperty(prefix = "elide.mvc", value = "post",
       havingValue = "true", matchIfMissing = true)
+  @ConditionalOnExpression(SYNC_ENABLED)
   public static class ElidePostController {
 
     private final Elide elide;
-    private final ElideProperties elideProperties;
+    private final JsonApiPathMatcher pathMatcher;
 
     @Autowired
     public ElidePostController(Elide elide, ElideProperties elideProperties) {
       this.elide = elide;
-      this.elideProperties = elideProperties;
+      this.pathMatcher = new JsonApiPathMatcher(elideProperties.getPrefix());
     }
 
     /**
@@ -114,8 +160,87 @@ public class ElideControllerAutoConfiguration {
     public ResponseEntity<String> elidePost(@RequestBody String body,
         HttpServletRequest request, Principal authentication) {
       ElideResponse response = elide
-          .post(getJsonApiPath(request, elideProperties.getPrefix()), body, authentication);
-      return ResponseEntity.status(response.getResponseCode()).body(response.getBody());
+          .post(getJsonApiPath(request, pathMatcher), body, authentication);
+      return responseStatus(response).body(response.getBody());
+    }
+  }
+
+  @Configuration
+  @RestController
+  @RequestMapping(value = "${elide.prefix:/api}", produces = JSON_API_CONTENT_TYPE)
+  @ConditionalOnProperty(prefix = "elide.ndjson-import", value = "enabled",
+      havingValue = "true")
+  @ConditionalOnExpression(SYNC_ENABLED)
+  public static class ElideImportController {
+
+    private final NdjsonImporter importer;
+    private final JsonApiPathMatcher pathMatcher;
+
+    /**
+     * Constructor.
+     */
+    @Autowired
+    public ElideImportController(Elide elide, EntityManager entityManager,
+        ElideProperties elideProperties) {
+      this.importer = new NdjsonImporter(elide, entityManager,
+          elideProperties.getNdjsonImport().getChunkSize());
+      this.pathMatcher = new JsonApiPathMatcher(elideProperties.getPrefix());
+    }
+
+    /**
+     * Elide [POST] controller of the NDJSON imports, the body is read as a stream.
+     */
+    @PostMapping(value = "/**", consumes = NDJSON_CONTENT_TYPE)
+    public ResponseEntity<String> elideImport(HttpServletRequest request,
+        Principal authentication) throws IOException {
+      ElideResponse response = importer.importResources(getJsonApiPath(request, pathMatcher),
+          request.getInputStream(), authentication);
+      return responseStatus(response).body(response.getBody());
+    }
+  }
+
+  @Configuration
+  @RestController
+  @RequestMapping(value = "${elide.prefix:/api}")
+  @ConditionalOnProperty(prefix = "elide.export", value = "enabled", havingValue = "true")
+  @ConditionalOnExpression(SYNC_ENABLED)
+  public static class ElideExportController {
+
+    private final CollectionExporter exporter;
+
+    /**
+     * Constructor.
+     */
+    @Autowired
+    public ElideExportController(Elide elide, EntityManager entityManager,
+        ElideProperties elideProperties) {
+      this.exporter = new CollectionExporter(elide, entityManager,
+          elideProperties.getExport().getChunkSize(), elideProperties.getExport().getFetchSize());
+    }
+
+    /**
+     * Elide [GET] controller of the exports, NDJSON unless CSV is preferred by the Accept header.
+     */
+    @GetMapping(value = "/export/{type}", produces = {NDJSON_CONTENT_TYPE, CSV_CONTENT_TYPE})
+    public void elideExport(@PathVariable("type") String type, HttpServletRequest request,
+        HttpServletResponse response, Principal authentication) throws IOException {
+      exporter.exportResources(type, request.getParameterMap(), authentication,
+          exportFormat(request.getHeader(HttpHeaders.ACCEPT)), response);
+    }
+
+    private static CollectionExporter.Format exportFormat(String accept) {
+      List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+      MediaType.sortBySpecificityAndQuality(mediaTypes);
+      for (MediaType mediaType : mediaTypes) {
+        if (mediaType.isCompatibleWith(MediaType.valueOf(CSV_CONTENT_TYPE))
+            && !mediaType.isWildcardSubtype()) {
+          return CollectionExporter.Format.CSV;
+        }
+        if (mediaType.isCompatibleWith(MediaType.valueOf(NDJSON_CONTENT_TYPE))) {
+          return CollectionExporter.Format.NDJSON;
+        }
+      }
+      return CollectionExporter.Format.NDJSON;
     }
   }
 
@@ -124,15 +249,16 @@ public class ElideControllerAutoConfiguration {
   @RequestMapping(value = "${elide.prefix:/api}", produces = JSON_API_CONTENT_TYPE)
   @ConditionalOnProperty(prefix = "elide.mvc", value = "patch",
       havingValue = "true", matchIfMissing = true)
+  @ConditionalOnExpression(SYNC_ENABLED)
   public static class ElidePatchController {
 
     private final Elide elide;
-    private final ElideProperties elideProperties;
+    private final JsonApiPathMatcher pathMatcher;
 
     @Autowired
     public ElidePatchController(Elide elide, ElideProperties elideProperties) {
       this.elide = elide;
-      this.elideProperties = elideProperties;
+      this.pathMatcher = new JsonApiPathMatcher(elideProperties.getPrefix());
     }
 
     /**
@@ -142,8 +268,8 @@ public class ElideControllerAutoConfiguration {
     public ResponseEntity<String> elidePatch(@RequestBody String body,
         HttpServletRequest request, Principal authentication) {
       ElideResponse response = elide.patch(JSON_API_CONTENT_TYPE, JSON_API_CONTENT_TYPE,
-          getJsonApiPath(request, elideProperties.getPrefix()), body, authentication);
-      return ResponseEntity.status(response.getResponseCode()).body(response.getBody());
+          getJsonApiPath(request, pathMatcher), body, authentication);
+      return responseStatus(response).body(response.getBody());
     }
   }
 
@@ -152,15 +278,16 @@ public class ElideControllerAutoConfiguration {
   @RequestMapping(value = "${elide.prefix:/api}", produces = JSON_API_CONTENT_TYPE)
   @ConditionalOnProperty(prefix = "elide.mvc", value = "delete",
       havingValue = "true", matchIfMissing = true)
+  @ConditionalOnExpression(SYNC_ENABLED)
   public static class ElideDeleteController {
 
     private final Elide elide;
-    private final ElideProperties elideProperties;
+    private final JsonApiPathMatcher pathMatcher;
 
     @Autowired
     public ElideDeleteController(Elide elide, ElideProperties elideProperties) {
       this.elide = elide;
-      this.elideProperties = elideProperties;
+      this.pathMatcher = new JsonApiPathMatcher(elideProperties.getPrefix());
     }
 
     /**
@@ -170,8 +297,8 @@ public class ElideControllerAutoConfiguration {
     public ResponseEntity<String> elideDeleteRelationship(@RequestBody String body,
         HttpServletRequest request, Principal authentication) {
       ElideResponse response = elide
-          .delete(getJsonApiPath(request, elideProperties.getPrefix()), body, authentication);
-      return ResponseEntity.status(response.getResponseCode()).body(response.getBody());
+          .delete(getJsonApiPath(request, pathMatcher), body, authentication);
+      return responseStatus(response).body(response.getBody());
     }
 
     /**
@@ -181,8 +308,8 @@ public class ElideControllerAutoConfiguration {
     public ResponseEntity<String> elideDelete(HttpServletRequest request,
         Principal authentication) {
       ElideResponse response = elide
-          .delete(getJsonApiPath(request, elideProperties.getPrefix()), null, authentication);
-      return ResponseEntity.status(response.getResponseCode()).body(response.getBody());
+          .delete(getJsonApiPath(request, pathMatcher), null, authentication);
+      return responseStatus(response).body(response.getBody());
     }
   }
 
@@ -192,32 +319,80 @@ public class ElideControllerAutoConfiguration {
   @ConditionalOnClass({ GraphQLRequestScope.class })
   @ConditionalOnProperty(prefix = "elide.mvc", value = "graphql",
       havingValue = "true", matchIfMissing = true)
+  @ConditionalOnExpression(SYNC_ENABLED)
   public static class ElideGraphQLController {
 
     private final GraphQLHandle graphQLHandle;
 
     @Autowired
-    public ElideGraphQLController(Elide elide) {
-      this.graphQLHandle = new GraphQLHandle(elide);
+    public ElideGraphQLController(GraphQLHandle graphQLHandle) {
+      this.graphQLHandle = graphQLHandle;
     }
 
     /**
-     * Elide [GraphQL] controller.
+     * Elide [GraphQL] controller, a batch is streamed to the response.
      */
     @PostMapping(
         value = "/graphql",
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<String> graphql(@RequestBody String graphQLDocument, Principal auth) {
-      ElideResponse response = graphQLHandle.post(graphQLDocument, auth);
-      return ResponseEntity.status(response.getResponseCode()).body(response.getBody());
+    public ResponseEntity<String> graphql(@RequestBody String graphQLDocument, Principal auth,
+        HttpServletResponse servletResponse) throws IOException {
+      // only used by a batch, nothing is written to the response before that
+      servletResponse.setStatus(HttpStatus.SC_OK);
+      servletResponse.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+      ElideResponse response = graphQLHandle
+          .post(graphQLDocument, auth, servletResponse.getOutputStream());
+      if (response == null) {
+        return null;
+      }
+      return responseStatus(response).body(response.getBody());
+    }
+
+    /**
+     * Elide [GraphQL] controller for queries, mostly used with persisted queries.
+     */
+    @GetMapping(value = "/graphql", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> graphqlGet(
+        @RequestParam(required = false) String query,
+        @RequestParam(required = false) String operationName,
+        @RequestParam(required = false) String variables,
+        @RequestParam(required = false) String extensions,
+        Principal auth) {
+      ElideResponse response = graphQLHandle
+          .get(query, operationName, variables, extensions, auth);
+      return responseStatus(response).body(response.getBody());
     }
   }
 
-  private static String getJsonApiPath(HttpServletRequest request, String prefix) {
+  /**
+   * Status of the response, with the statistics of the request if they are published.
+   */
+  static ResponseEntity.BodyBuilder responseStatus(ElideResponse response) {
+    ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.getResponseCode());
+    RequestStatistics statistics = RequestStatistics.takeCompleted();
+    if (statistics != null) {
+      builder.header(STATISTICS_HEADER, statistics.toString());
+    }
+    return builder;
+  }
+
+  /**
+   * ETag and Cache-Control of the GET responses, null if disabled.
+   */
+  static JsonApiHttpCache httpCache(ElideProperties elideProperties) {
+    ElideProperties.HttpCacheProperties httpCache = elideProperties.getHttpCache();
+    return httpCache.isEnabled()
+        ? new JsonApiHttpCache(httpCache.getCacheControl(), httpCache.getModels())
+        : null;
+  }
+
+  static String getJsonApiPath(HttpServletRequest request, JsonApiPathMatcher pathMatcher) {
     String pathname = (String) request
         .getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
-    logger.debug("[{}][{}] forward to elide.", request.getMethod(), pathname);
-    return pathname.replaceFirst(prefix, "");
+    if (logger.isDebugEnabled()) {
+      logger.debug("[{}][{}] forward to elide.", request.getMethod(), pathname);
+    }
+    return pathMatcher.strip(pathname);
   }
 }
@@ -16,6 +16,11 @@
 
 package org.illyasviel.elide.spring.boot.autoconfigure;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -38,7 +43,45 @@ public class ElideProperties {
    * Return error object array instead of error string array.
    */
   private boolean returnErrorObjects = false;
+  /**
+   * Load the lazy relationships of up to this many parents with one IN query, 0 to disable.
+   * Sets hibernate.default_batch_fetch_size, unless it is set already, so it applies to every
+   * entity of the persistence unit. Elide reads collections without scrolling while it is on.
+   */
+  private int batchFetchSize = 0;
+  /**
+   * Page the root collections after the token of page[after] (empty for the first page),
+   * links.next holds the token of the next page. The cost of a page does not grow with its depth.
+   */
+  private boolean keysetPagination = false;
+  /**
+   * Select only the id and the attributes of fields[type] when reading a root collection,
+   * unless relationships are requested or included.
+   */
+  private boolean fieldsetProjection = false;
+  /**
+   * Join the to-one relationships of include= into the root collection query. Included
+   * collections are joined only into unpaginated queries, at most one path, and are otherwise
+   * left to batch fetching.
+   */
+  private boolean fetchIncludes = false;
   private MvcProperties mvc;
+  private GraphQLProperties graphql = new GraphQLProperties();
+  private ReadReplicaProperties readReplica = new ReadReplicaProperties();
+  private ExecutionProperties execution = new ExecutionProperties();
+  private StatisticsProperties statistics = new StatisticsProperties();
+  private HttpCacheProperties httpCache = new HttpCacheProperties();
+  private ResponseCacheProperties responseCache = new ResponseCacheProperties();
+  private SecondLevelCacheProperties secondLevelCache = new SecondLevelCacheProperties();
+  private CountProperties count = new CountProperties();
+  /**
+   * Carries the committed changes to the response cache and the count cache of every node.
+   */
+  private InvalidationProperties cacheInvalidation = new InvalidationProperties();
+  private BulkWriteProperties bulkWrite = new BulkWriteProperties();
+  private NdjsonImportProperties ndjsonImport = new NdjsonImportProperties();
+  private ExportProperties export = new ExportProperties();
+  private MetricsProperties metrics = new MetricsProperties();
 
   @Data
   public static class MvcProperties {
@@ -50,4 +93,325 @@ public class ElideProperties {
     private boolean delete = true;
     private boolean graphql = true;
   }
+
+  @Data
+  public static class ExecutionProperties {
+
+    /**
+     * Run the requests on a bounded executor instead of the servlet container thread.
+     * A request is answered with 503 when the executor is full.
+     */
+    private boolean async = false;
+    /**
+     * Run each request on its own virtual thread (implies async), where the JDK supports them.
+     * pool-size + queue-capacity then bounds the requests in flight.
+     */
+    private boolean virtualThreads = false;
+    private int poolSize = 16;
+    /**
+     * Number of requests waiting for a thread before requests are rejected.
+     */
+    private int queueCapacity = 100;
+    /**
+     * Maximum number of concurrent Elide transactions, 0 for unbounded.
+     */
+    private int maxTransactions = 0;
+    /**
+     * How long a transaction waits for a permit before the request is answered with 503.
+     */
+    private Duration transactionWait = Duration.ofSeconds(30);
+  }
+
+  @Data
+  public static class StatisticsProperties {
+
+    /**
+     * Count the SQL statements, entity loads and collection fetches of each request.
+     */
+    private boolean enabled = false;
+    /**
+     * Log a warning when a request executes more statements, 0 to disable.
+     */
+    private int maxStatements = 100;
+    /**
+     * Log a warning when a request executes the same statement more often (N+1), 0 to disable.
+     */
+    private int maxRepeatedStatements = 10;
+    /**
+     * Add the figures as X-Elide-Statistics response header, meant for development.
+     */
+    private boolean responseHeader = false;
+  }
+
+  @Data
+  public static class HttpCacheProperties {
+
+    /**
+     * Add a strong ETag to the JSON-API GET responses, If-None-Match is answered with 304.
+     */
+    private boolean enabled = false;
+    /**
+     * Cache-Control of the JSON-API GET responses, none if empty.
+     */
+    private String cacheControl = "no-cache";
+    /**
+     * Cache-Control by json api type of the root collection, e.g. book: max-age=60.
+     */
+    private Map<String, String> models = new HashMap<>();
+  }
+
+  @Data
+  public static class ResponseCacheProperties {
+
+    /**
+     * Cache the JSON-API GET responses by path, query parameters and user, until a transaction
+     * writing one of their types commits.
+     */
+    private boolean enabled = false;
+    private long maximumSize = 10000;
+    /**
+     * Bounds the staleness caused by writes that do not go through Elide.
+     */
+    private Duration timeToLive = Duration.ofMinutes(10);
+    /**
+     * Json api types of the cached root collections, all if empty.
+     */
+    private List<String> models = new ArrayList<>();
+  }
+
+  @Data
+  public static class InvalidationProperties {
+
+    /**
+     * How the committed changes reach the caches of the other nodes.
+     */
+    private InvalidationBusType bus = InvalidationBusType.MEMORY;
+    /**
+     * Address the tcp bus listens on, set the address of the private network of the nodes.
+     */
+    private String bindAddress = "127.0.0.1";
+    /**
+     * Port the tcp bus listens on, required by the tcp bus.
+     */
+    private int port = 0;
+    /**
+     * The connection to a node not reading a message within it is dropped (tcp bus).
+     */
+    private Duration writeTimeout = Duration.ofSeconds(5);
+    /**
+     * host:port of the other nodes (tcp bus).
+     */
+    private List<String> peers = new ArrayList<>();
+  }
+
+  public enum InvalidationBusType {
+    MEMORY, TCP
+  }
+
+  @Data
+  public static class SecondLevelCacheProperties {
+
+    /**
+     * Cache the listed models and their collections in the hibernate second-level cache,
+     * a lookup by id then reads the cache.
+     */
+    private boolean enabled = false;
+    /**
+     * Json api types of the cached models. Entities annotated with @Cacheable are cached too.
+     */
+    private List<String> models = new ArrayList<>();
+    private String concurrencyStrategy = "read-write";
+    /**
+     * Cache the ids of the root collection pages of the cached models.
+     */
+    private boolean queryCache = true;
+    /**
+     * Only pages up to this size are cached.
+     */
+    private int queryCacheMaxResults = 100;
+    /**
+     * Maximum number of entries of each region, used when no region factory is configured.
+     */
+    private long maximumSize = 10000;
+    /**
+     * Bounds the staleness caused by writes that do not go through hibernate.
+     */
+    private Duration timeToLive = Duration.ofMinutes(10);
+  }
+
+  @Data
+  public static class NdjsonImportProperties {
+
+    /**
+     * Accept POST application/x-ndjson on a root collection, one resource object per line.
+     * Ignored with async execution.
+     */
+    private boolean enabled = false;
+    /**
+     * Number of resources created and committed by one transaction.
+     */
+    private int chunkSize = 1000;
+  }
+
+  @Data
+  public static class ExportProperties {
+
+    /**
+     * Stream a whole root collection on GET {prefix}/export/{type}, as application/x-ndjson
+     * or text/csv. Ignored with async execution.
+     */
+    private boolean enabled = false;
+    /**
+     * The session is cleared every this many rows.
+     */
+    private int chunkSize = 1000;
+    /**
+     * JDBC fetch size of the cursor, 0 for the driver default.
+     */
+    private int fetchSize = 1000;
+  }
+
+  @Data
+  public static class MetricsProperties {
+
+    /**
+     * GraphQL operation names recorded as the operation tag, other named operations are
+     * recorded as "other" since the name is chosen by the client.
+     */
+    private List<String> operationNames = new ArrayList<>();
+  }
+
+  @Data
+  public static class CountProperties {
+
+    /**
+     * Cache the page totals of the root collections by type and filter, until a transaction
+     * writing one of the types commits.
+     */
+    private boolean cache = false;
+    private long maximumSize = 10000;
+    /**
+     * Bounds the staleness caused by writes that do not go through Elide.
+     */
+    private Duration timeToLive = Duration.ofMinutes(1);
+    /**
+     * Use the row count estimated by the database as total of unfiltered collections.
+     */
+    private boolean approximate = false;
+    /**
+     * Smaller collections are counted exactly.
+     */
+    private long approximateThreshold = 100000;
+  }
+
+  @Data
+  public static class BulkWriteProperties {
+
+    /**
+     * Send the writes of the Elide transactions in JDBC batches, ordered by entity
+     * (hibernate.order_inserts and hibernate.order_updates, unless they are set already).
+     */
+    private boolean enabled = false;
+    private int jdbcBatchSize = 50;
+    /**
+     * Flush the entities created by a transaction in chunks of this many.
+     */
+    private int flushSize = 1000;
+  }
+
+  @Data
+  public static class GraphQLProperties {
+
+    private DocumentCacheProperties documentCache = new DocumentCacheProperties();
+    private PersistedQueryProperties persistedQuery = new PersistedQueryProperties();
+    private BatchProperties batch = new BatchProperties();
+  }
+
+  @Data
+  public static class BatchProperties {
+
+    /**
+     * Run the queries of a batched request concurrently, each in its own transaction.
+     * A batch containing a mutation always runs serially.
+     */
+    private boolean parallel = false;
+    /**
+     * Number of threads shared by all batched requests.
+     */
+    private int poolSize = 8;
+    /**
+     * Maximum number of queries of one batch running concurrently.
+     */
+    private int maxConcurrency = 4;
+    /**
+     * Number of queries waiting for a thread before batches are answered with 503.
+     */
+    private int queueCapacity = 100;
+  }
+
+  @Data
+  public static class DocumentCacheProperties {
+
+    /**
+     * Cache parsed and validated GraphQL documents keyed by query text.
+     */
+    private boolean enabled = true;
+    /**
+     * Maximum total length (chars) of the cached queries.
+     */
+    private long maximumWeight = 1024 * 1024;
+  }
+
+  @Data
+  public static class PersistedQueryProperties {
+
+    /**
+     * Accept the SHA-256 hash of a registered query instead of the query (APQ).
+     */
+    private boolean enabled = true;
+    private PersistedQueryStoreType store = PersistedQueryStoreType.MEMORY;
+    /**
+     * Maximum number of queries kept by the store.
+     */
+    private long maximumSize = 10000;
+    /**
+     * Directory of the file store.
+     */
+    private String directory = "persisted-queries";
+  }
+
+  public enum PersistedQueryStoreType {
+    MEMORY, FILE
+  }
+
+  @Data
+  public static class ReadReplicaProperties {
+
+    /**
+     * Route read-only transactions (JSON-API GET, GraphQL query) to the replicas.
+     */
+    private boolean enabled = false;
+    /**
+     * Name of the primary DataSource bean to wrap.
+     */
+    private String dataSourceBeanName = "dataSource";
+    /**
+     * Used when there is no ReplicaLoadBalancer bean.
+     */
+    private LoadBalancer loadBalancer = LoadBalancer.ROUND_ROBIN;
+    private List<ReplicaProperties> replicas = new ArrayList<>();
+  }
+
+  @Data
+  public static class ReplicaProperties {
+
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName;
+  }
+
+  public enum LoadBalancer {
+    ROUND_ROBIN, RANDOM
+  }
 }
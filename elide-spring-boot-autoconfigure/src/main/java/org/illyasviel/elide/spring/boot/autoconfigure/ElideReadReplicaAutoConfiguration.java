@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.autoconfigure;
+
+import org.illyasviel.elide.spring.boot.datasource.RandomReplicaLoadBalancer;
+import org.illyasviel.elide.spring.boot.datasource.ReadReplicaDataSourcePostProcessor;
+import org.illyasviel.elide.spring.boot.datasource.ReplicaLoadBalancer;
+import org.illyasviel.elide.spring.boot.datasource.RoundRobinReplicaLoadBalancer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Elide Read Replica AutoConfiguration.
+ * @author olOwOlo
+ */
+@Configuration
+@EnableConfigurationProperties(ElideProperties.class)
+@ConditionalOnClass(LazyConnectionDataSourceProxy.class)
+@ConditionalOnProperty(prefix = "elide.read-replica", value = "enabled", havingValue = "true")
+public class ElideReadReplicaAutoConfiguration {
+
+  /**
+   * Configure the replica load balancer from {@link ElideProperties}.
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  public ReplicaLoadBalancer replicaLoadBalancer(ElideProperties elideProperties) {
+    switch (elideProperties.getReadReplica().getLoadBalancer()) {
+      case RANDOM:
+        return new RandomReplicaLoadBalancer();
+      case ROUND_ROBIN:
+      default:
+        return new RoundRobinReplicaLoadBalancer();
+    }
+  }
+
+  @Bean
+  public static ReadReplicaDataSourcePostProcessor readReplicaDataSourcePostProcessor(
+      ObjectProvider<ElideProperties> elideProperties,
+      ObjectProvider<ReplicaLoadBalancer> loadBalancer) {
+    return new ReadReplicaDataSourcePostProcessor(elideProperties, loadBalancer);
+  }
+}
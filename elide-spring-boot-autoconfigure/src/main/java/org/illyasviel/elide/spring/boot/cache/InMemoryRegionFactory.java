@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+/**
+ * Second-level cache regions held in the heap of this node, used when no region factory
+ * (e.g. jcache) is configured. Every region is bounded in size and time, except the update
+ * timestamps that keep the cached query results consistent.
+ *
+ * @author olOwOlo
+ */
+public class InMemoryRegionFactory extends RegionFactoryTemplate {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Maximum number of entries of each region.
+   */
+  public static final String MAXIMUM_SIZE = "hibernate.cache.elide.maximum_size";
+  /**
+   * Time to live of an entry in milliseconds.
+   */
+  public static final String TIME_TO_LIVE = "hibernate.cache.elide.time_to_live";
+
+  private long maximumSize = 10000;
+  private long timeToLive = TimeUnit.MINUTES.toMillis(10);
+
+  @Override
+  protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+    maximumSize = getLong(configValues, MAXIMUM_SIZE, maximumSize);
+    timeToLive = getLong(configValues, TIME_TO_LIVE, timeToLive);
+  }
+
+  private static long getLong(Map configValues, String name, long defaultValue) {
+    Object value = configValues.get(name);
+    return value == null ? defaultValue : Long.parseLong(value.toString());
+  }
+
+  @Override
+  protected void releaseFromUse() {
+  }
+
+  @Override
+  protected DomainDataStorageAccess createDomainDataStorageAccess(
+      DomainDataRegionConfig regionConfig, DomainDataRegionBuildingContext buildingContext) {
+    return new GuavaStorageAccess(boundedCache());
+  }
+
+  @Override
+  protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+      SessionFactoryImplementor sessionFactory) {
+    return new GuavaStorageAccess(boundedCache());
+  }
+
+  /**
+   * An evicted timestamp would let a stale query result pass as up to date.
+   */
+  @Override
+  protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+      SessionFactoryImplementor sessionFactory) {
+    return new GuavaStorageAccess(CacheBuilder.newBuilder().build());
+  }
+
+  private Cache<Object, Object> boundedCache() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(timeToLive, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  private static class GuavaStorageAccess implements DomainDataStorageAccess {
+
+    private final Cache<Object, Object> cache;
+
+    GuavaStorageAccess(Cache<Object, Object> cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+      return cache.getIfPresent(key);
+    }
+
+    @Override
+    public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+      if (value == null) {
+        cache.invalidate(key);
+      } else {
+        cache.put(key, value);
+      }
+    }
+
+    @Override
+    public boolean contains(Object key) {
+      return cache.getIfPresent(key) != null;
+    }
+
+    @Override
+    public void evictData() {
+      cache.invalidateAll();
+    }
+
+    @Override
+    public void evictData(Object key) {
+      cache.invalidate(key);
+    }
+
+    @Override
+    public void release() {
+      cache.invalidateAll();
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.cache;
+
+import com.yahoo.elide.core.EntityDictionary;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.OneToMany;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.RootClass;
+import org.hibernate.mapping.ToOne;
+import org.hibernate.mapping.Value;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Marks the entities of the given json api types cacheable in the second-level cache,
+ * as hibernate.ejb.classcache would, before the regions are built. A collection of a cached
+ * entity is cached when its elements are, a cache hit would load them one by one otherwise.
+ * An entity is cached with its whole inheritance hierarchy.
+ *
+ * @author olOwOlo
+ */
+public class SecondLevelCacheIntegrator implements Integrator {
+
+  private static final Logger logger = LoggerFactory.getLogger(SecondLevelCacheIntegrator.class);
+
+  private final Set<String> models;
+  private final String concurrencyStrategy;
+
+  /**
+   * Constructor.
+   *
+   * @param models json api types of the cached entities
+   * @param concurrencyStrategy e.g. read-write
+   */
+  public SecondLevelCacheIntegrator(Collection<String> models, String concurrencyStrategy) {
+    this.models = new HashSet<>(models);
+    this.concurrencyStrategy = concurrencyStrategy;
+  }
+
+  @Override
+  public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+      SessionFactoryServiceRegistry serviceRegistry) {
+    if (models.isEmpty()) {
+      return;
+    }
+    if (!sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()) {
+      logger.warn("The second-level cache is disabled, the Elide models are not cached.");
+      return;
+    }
+    // resolved as Elide does, the dictionary of Elide is populated from the session factory
+    EntityDictionary dictionary = new EntityDictionary(new HashMap<>());
+    for (PersistentClass entity : metadata.getEntityBindings()) {
+      Class<?> mappedClass = entity.getMappedClass();
+      if (mappedClass == null) {
+        continue;
+      }
+      try {
+        dictionary.bindEntity(mappedClass);
+        if (!models.contains(dictionary.getJsonAliasFor(mappedClass))) {
+          continue;
+        }
+      } catch (IllegalArgumentException e) {
+        // not an annotated entity, e.g. envers
+        continue;
+      }
+      RootClass root = entity.getRootClass();
+      if (!root.isCached()) {
+        root.setCached(true);
+        root.setCacheConcurrencyStrategy(concurrencyStrategy);
+        root.setCacheRegionName(root.getEntityName());
+        logger.debug("Cache entity [{}] in the second-level cache.", root.getEntityName());
+      }
+    }
+    for (org.hibernate.mapping.Collection collection : metadata.getCollectionBindings()) {
+      if (collection.getCacheConcurrencyStrategy() == null
+          && collection.getOwner().getRootClass().isCached()
+          && isElementCached(metadata, collection.getElement())) {
+        collection.setCacheConcurrencyStrategy(concurrencyStrategy);
+        collection.setCacheRegionName(collection.getRole());
+        logger.debug("Cache collection [{}] in the second-level cache.", collection.getRole());
+      }
+    }
+  }
+
+  private static boolean isElementCached(Metadata metadata, Value element) {
+    String entityName;
+    if (element instanceof OneToMany) {
+      entityName = ((OneToMany) element).getReferencedEntityName();
+    } else if (element instanceof ToOne) {
+      entityName = ((ToOne) element).getReferencedEntityName();
+    } else {
+      // values are held by the collection entry itself
+      return true;
+    }
+    PersistentClass entity = metadata.getEntityBinding(entityName);
+    return entity != null && entity.getRootClass().isCached();
+  }
+
+  @Override
+  public void disintegrate(SessionFactoryImplementor sessionFactory,
+      SessionFactoryServiceRegistry serviceRegistry) {
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datasource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.illyasviel.elide.spring.boot.autoconfigure.ElideProperties;
+import org.illyasviel.elide.spring.boot.autoconfigure.ElideProperties.ReadReplicaProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Wrap the primary DataSource bean with a {@link ReadReplicaRoutingDataSource}.
+ * @author olOwOlo
+ */
+public class ReadReplicaDataSourcePostProcessor implements BeanPostProcessor, DisposableBean {
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(ReadReplicaDataSourcePostProcessor.class);
+
+  private final ObjectProvider<ElideProperties> elideProperties;
+  private final ObjectProvider<ReplicaLoadBalancer> loadBalancer;
+  private final List<DataSource> replicas = new ArrayList<>();
+
+  /**
+   * Constructor, both providers are resolved lazily
+   * since a BeanPostProcessor is instantiated before regular beans.
+   *
+   * @param elideProperties ElideProperties
+   * @param loadBalancer ReplicaLoadBalancer
+   */
+  public ReadReplicaDataSourcePostProcessor(ObjectProvider<ElideProperties> elideProperties,
+      ObjectProvider<ReplicaLoadBalancer> loadBalancer) {
+    this.elideProperties = elideProperties;
+    this.loadBalancer = loadBalancer;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (!(bean instanceof DataSource)) {
+      return bean;
+    }
+    ReadReplicaProperties properties = elideProperties.getObject().getReadReplica();
+    if (!beanName.equals(properties.getDataSourceBeanName())) {
+      return bean;
+    }
+
+    replicas.addAll(properties.getReplicas().stream()
+        .map(replica -> DataSourceBuilder.create()
+            .driverClassName(replica.getDriverClassName())
+            .url(replica.getUrl())
+            .username(replica.getUsername())
+            .password(replica.getPassword())
+            .build())
+        .collect(Collectors.toList()));
+    logger.info("Route read-only transactions of DataSource [{}] to {} replica(s).",
+        beanName, replicas.size());
+
+    return new LazyConnectionDataSourceProxy(
+        new ReadReplicaRoutingDataSource((DataSource) bean, replicas, loadBalancer.getObject()));
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    for (DataSource replica : replicas) {
+      if (replica instanceof Closeable) {
+        ((Closeable) replica).close();
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * <p>Route read-only transactions to a replica, everything else to the primary.</p>
+ * The read-only flag is only known after the transaction began, wrap this DataSource
+ * with a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * so the connection is fetched on the first statement.
+ *
+ * @author olOwOlo
+ */
+public class ReadReplicaRoutingDataSource extends AbstractDataSource {
+
+  private final DataSource primary;
+  private final List<DataSource> replicas;
+  private final ReplicaLoadBalancer loadBalancer;
+
+  /**
+   * Constructor.
+   *
+   * @param primary Primary DataSource
+   * @param replicas Replica DataSources
+   * @param loadBalancer Strategy to choose a replica
+   */
+  public ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+      ReplicaLoadBalancer loadBalancer) {
+    this.primary = primary;
+    this.replicas = Collections.unmodifiableList(replicas);
+    this.loadBalancer = loadBalancer;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return determineTargetDataSource().getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return determineTargetDataSource().getConnection(username, password);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return (T) this;
+    }
+    return primary.unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || primary.isWrapperFor(iface);
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  public List<DataSource> getReplicas() {
+    return replicas;
+  }
+
+  protected DataSource determineTargetDataSource() {
+    if (!replicas.isEmpty() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return loadBalancer.choose(replicas);
+    }
+    return primary;
+  }
+}
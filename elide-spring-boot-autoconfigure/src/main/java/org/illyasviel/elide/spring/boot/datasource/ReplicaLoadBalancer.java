@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datasource;
+
+import java.util.List;
+import javax.sql.DataSource;
+
+/**
+ * Choose a replica for a read-only transaction.
+ * Define a bean of this type to replace the configured strategy.
+ * @author olOwOlo
+ */
+@FunctionalInterface
+public interface ReplicaLoadBalancer {
+
+  /**
+   * Choose one of the replicas.
+   *
+   * @param replicas Replica DataSources, never empty
+   * @return the chosen replica
+   */
+  DataSource choose(List<DataSource> replicas);
+}
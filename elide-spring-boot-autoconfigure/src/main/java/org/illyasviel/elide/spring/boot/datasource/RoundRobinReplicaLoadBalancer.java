@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datasource;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+/**
+ * Round robin replica load balancer.
+ * @author olOwOlo
+ */
+public class RoundRobinReplicaLoadBalancer implements ReplicaLoadBalancer {
+
+  private final AtomicInteger counter = new AtomicInteger();
+
+  @Override
+  public DataSource choose(List<DataSource> replicas) {
+    int index = Math.floorMod(counter.getAndIncrement(), replicas.size());
+    return replicas.get(index);
+  }
+}
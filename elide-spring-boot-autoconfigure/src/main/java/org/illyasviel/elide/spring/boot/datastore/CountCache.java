@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datastore;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.Path;
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.filter.expression.AndFilterExpression;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.filter.expression.FilterExpressionVisitor;
+import com.yahoo.elide.core.filter.expression.NotFilterExpression;
+import com.yahoo.elide.core.filter.expression.OrFilterExpression;
+import com.yahoo.elide.core.filter.expression.PredicateExtractionVisitor;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of the page totals of the root collections, keyed by type and normalized filter.
+ * A count is dropped when a transaction writing its type, or a type its filter goes through,
+ * commits. Writes that do not go through Elide are only caught up by the time to live.
+ *
+ * @author olOwOlo
+ */
+public class CountCache implements EntityChangeListener {
+
+  private static final FilterExpressionVisitor<String> NORMALIZER = new Normalizer();
+
+  private final Cache<String, CachedCount> cache;
+  /**
+   * Incremented by every invalidation, a count loaded meanwhile may be stale.
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param maximumSize maximum number of cached counts
+   * @param timeToLive time to live of a cached count
+   */
+  public CountCache(long maximumSize, Duration timeToLive) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * The cached count, else the loaded one.
+   *
+   * @param entityClass counted entity
+   * @param filterExpression filter of the collection, permission filters included
+   * @param dictionary dictionary
+   * @param loader counts the collection
+   */
+  public long get(Class<?> entityClass, Optional<FilterExpression> filterExpression,
+      EntityDictionary dictionary, LongSupplier loader) {
+    String type = dictionary.getJsonAliasFor(entityClass);
+    String key = type + '?' + filterExpression.map(f -> f.accept(NORMALIZER)).orElse("");
+    CachedCount cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached.count;
+    }
+    long loadGeneration = generation.get();
+    long count = loader.getAsLong();
+    if (generation.get() == loadGeneration) {
+      cache.put(key, new CachedCount(count, dependencies(type, filterExpression, dictionary)));
+    }
+    return count;
+  }
+
+  @Override
+  public void afterCommit(Map<String, Set<String>> changes) {
+    invalidate(changes.keySet());
+  }
+
+  /**
+   * Drop the counts depending on one of the types.
+   */
+  public void invalidate(Set<String> types) {
+    generation.incrementAndGet();
+    cache.asMap().values()
+        .removeIf(entry -> !Collections.disjoint(entry.dependencies, types));
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  private static Set<String> dependencies(String type,
+      Optional<FilterExpression> filterExpression, EntityDictionary dictionary) {
+    Set<String> types = new HashSet<>();
+    types.add(type);
+    filterExpression.ifPresent(f -> {
+      for (FilterPredicate predicate : f.accept(new PredicateExtractionVisitor())) {
+        for (Path.PathElement element : predicate.getPath().getPathElements()) {
+          types.add(dictionary.getJsonAliasFor(element.getType()));
+        }
+      }
+    });
+    return types;
+  }
+
+  /**
+   * The same filter written in another order gives the same key:
+   * the operands of nested ANDs and ORs are flattened and sorted.
+   */
+  private static class Normalizer implements FilterExpressionVisitor<String> {
+
+    @Override
+    public String visitPredicate(FilterPredicate filterPredicate) {
+      return filterPredicate.toString();
+    }
+
+    @Override
+    public String visitAndExpression(AndFilterExpression expression) {
+      List<String> operands = new ArrayList<>();
+      flatten(expression, AndFilterExpression.class, operands);
+      return join(" AND ", operands);
+    }
+
+    @Override
+    public String visitOrExpression(OrFilterExpression expression) {
+      List<String> operands = new ArrayList<>();
+      flatten(expression, OrFilterExpression.class, operands);
+      return join(" OR ", operands);
+    }
+
+    @Override
+    public String visitNotExpression(NotFilterExpression expression) {
+      return "NOT (" + expression.getNegated().accept(this) + ")";
+    }
+
+    private void flatten(FilterExpression expression, Class<? extends FilterExpression> operator,
+        Collection<String> operands) {
+      if (!operator.isInstance(expression)) {
+        operands.add(expression.accept(this));
+      } else if (expression instanceof AndFilterExpression) {
+        flatten(((AndFilterExpression) expression).getLeft(), operator, operands);
+        flatten(((AndFilterExpression) expression).getRight(), operator, operands);
+      } else {
+        flatten(((OrFilterExpression) expression).getLeft(), operator, operands);
+        flatten(((OrFilterExpression) expression).getRight(), operator, operands);
+      }
+    }
+
+    private static String join(String operator, List<String> operands) {
+      Collections.sort(operands);
+      return "(" + String.join(operator, operands) + ")";
+    }
+  }
+
+  private static class CachedCount {
+
+    private final long count;
+    private final Set<String> dependencies;
+
+    CachedCount(long count, Set<String> dependencies) {
+      this.count = count;
+      this.dependencies = dependencies;
+    }
+  }
+}
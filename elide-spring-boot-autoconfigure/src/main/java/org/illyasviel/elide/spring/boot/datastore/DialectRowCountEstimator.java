@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datastore;
+
+import java.util.List;
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+
+/**
+ * Reads the row count kept by the planner statistics of PostgreSQL, MySQL and H2,
+ * no estimate for the other databases.
+ *
+ * @author olOwOlo
+ */
+public class DialectRowCountEstimator implements RowCountEstimator {
+
+  private static final String POSTGRESQL =
+      "select cast(reltuples as bigint) from pg_class where oid = to_regclass(?1)";
+  private static final String MYSQL = "select table_rows from information_schema.tables"
+      + " where table_schema = database() and table_name = ?1";
+  private static final String H2 = "select row_count_estimate from information_schema.tables"
+      + " where table_schema = schema() and upper(table_name) = upper(?1)";
+
+  private final String sql;
+  private final boolean qualified;
+
+  /**
+   * Constructor.
+   *
+   * @param dialect dialect of the database
+   */
+  public DialectRowCountEstimator(Dialect dialect) {
+    if (dialect instanceof PostgreSQL81Dialect) {
+      this.sql = POSTGRESQL;
+      this.qualified = true;
+    } else if (dialect instanceof MySQLDialect) {
+      this.sql = MYSQL;
+      this.qualified = false;
+    } else if (dialect instanceof H2Dialect) {
+      this.sql = H2;
+      this.qualified = false;
+    } else {
+      this.sql = null;
+      this.qualified = false;
+    }
+  }
+
+  @Override
+  public Long estimate(Session session, String table) {
+    if (sql == null) {
+      return null;
+    }
+    String name = qualified ? table : table.substring(table.lastIndexOf('.') + 1);
+    List<?> rows = session.createNativeQuery(sql).setParameter(1, name).list();
+    if (rows.isEmpty() || rows.get(0) == null) {
+      return null;
+    }
+    long estimate = ((Number) rows.get(0)).longValue();
+    // Never analyzed (PostgreSQL reports -1 since version 14).
+    return estimate < 0 ? null : estimate;
+  }
+}
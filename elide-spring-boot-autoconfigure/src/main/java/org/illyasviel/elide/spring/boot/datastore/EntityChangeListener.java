@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datastore;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Notified after a transaction writing entities through Elide is committed.
+ *
+ * @author olOwOlo
+ */
+@FunctionalInterface
+public interface EntityChangeListener {
+
+  /**
+   * Called after commit, exceptions are logged and ignored.
+   *
+   * @param changes ids of the created, updated and deleted entities by json api type
+   */
+  void afterCommit(Map<String, Set<String>> changes);
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datastore;
+
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.RelationshipType;
+import com.yahoo.elide.core.RequestScope;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityGraph;
+import javax.persistence.Subgraph;
+import org.hibernate.Session;
+
+/**
+ * Plans the relationships of include= fetched by the root collection query.
+ * A to-one relationship is joined. Joining collections multiplies the rows, so at most one
+ * to-many path is joined and only when the query is not paginated, as hibernate would apply
+ * the limit in memory. The rest is left to batch fetching, one query per relationship level.
+ *
+ * @author olOwOlo
+ */
+final class IncludeFetchPlanner {
+
+  static final String LOAD_GRAPH = "javax.persistence.loadgraph";
+
+  private IncludeFetchPlanner() {
+  }
+
+  /**
+   * The entity graph of the joined relationships, null if none.
+   *
+   * @param session session of the query
+   * @param entityClass root entity
+   * @param scope scope holding the include paths
+   * @param paginated whether the query is limited
+   */
+  static EntityGraph<?> plan(Session session, Class<?> entityClass, RequestScope scope,
+      boolean paginated) {
+    List<String> paths = includePaths(scope);
+    if (paths.isEmpty()) {
+      return null;
+    }
+    EntityDictionary dictionary = scope.getDictionary();
+    EntityGraph<?> graph = session.createEntityGraph(entityClass);
+    Map<String, Subgraph<?>> subgraphs = new HashMap<>();
+    String toManyPath = null;
+    for (String path : paths) {
+      Class<?> type = entityClass;
+      String prefix = "";
+      Subgraph<?> parent = null;
+      for (String relationship : path.split("\\.")) {
+        RelationshipType relationshipType = dictionary.getRelationshipType(type, relationship);
+        if (relationshipType == RelationshipType.NONE || relationshipType.isComputed()) {
+          break;
+        }
+        String current = prefix + relationship;
+        if (!relationshipType.isToOne()) {
+          if (!current.equals(toManyPath) && (paginated || toManyPath != null)) {
+            break;
+          }
+          toManyPath = current;
+        }
+        Subgraph<?> subgraph = subgraphs.get(current);
+        if (subgraph == null) {
+          subgraph = parent == null ? graph.addSubgraph(relationship)
+              : parent.addSubgraph(relationship);
+          subgraphs.put(current, subgraph);
+        }
+        parent = subgraph;
+        prefix = current + ".";
+        type = dictionary.getParameterizedType(type, relationship);
+      }
+    }
+    return subgraphs.isEmpty() ? null : graph;
+  }
+
+  private static List<String> includePaths(RequestScope scope) {
+    List<String> paths = new ArrayList<>();
+    for (String include : scope.getQueryParams()
+        .map(params -> params.get("include"))
+        .orElse(Collections.emptyList())) {
+      for (String path : include.split(",")) {
+        if (!path.trim().isEmpty()) {
+          paths.add(path.trim());
+        }
+      }
+    }
+    return paths;
+  }
+}
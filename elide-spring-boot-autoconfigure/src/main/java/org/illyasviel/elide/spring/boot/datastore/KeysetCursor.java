@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datastore;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yahoo.elide.annotation.ReadPermission;
+import com.yahoo.elide.core.CheckInstantiator;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.Path;
+import com.yahoo.elide.core.PersistentResource;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.exceptions.ForbiddenAccessException;
+import com.yahoo.elide.core.exceptions.InvalidValueException;
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.filter.Operator;
+import com.yahoo.elide.core.filter.expression.AndFilterExpression;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.filter.expression.OrFilterExpression;
+import com.yahoo.elide.core.sort.Sorting;
+import com.yahoo.elide.generated.parsers.ExpressionBaseVisitor;
+import com.yahoo.elide.generated.parsers.ExpressionParser;
+import com.yahoo.elide.security.FilterExpressionCheck;
+import com.yahoo.elide.security.checks.Check;
+import com.yahoo.elide.security.checks.UserCheck;
+import com.yahoo.elide.utils.coerce.CoerceUtil;
+import com.yahoo.elide.utils.coerce.converters.Serde;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+/**
+ * Cursor of a keyset paged request (page[after]), bound to the thread running the request.
+ * The opaque token holds the sort and the sort key of the last resource of the previous page,
+ * the id breaks the ties and a null value is kept as null. The next page is the resources
+ * after that key in the sort order, which the database seeks in an index instead of skipping
+ * an offset.
+ *
+ * @author olOwOlo
+ */
+public final class KeysetCursor {
+
+  private static final ThreadLocal<KeysetCursor> CURRENT = new ThreadLocal<>();
+  /**
+   * A value of the key is written by the serde Elide has for its type, or else by jackson with
+   * the modules on the classpath (e.g. java.time), and read back the same way.
+   */
+  private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules();
+  private static final String ID = "id";
+  private static final String SORT = "sort";
+  private static final String KEY = "key";
+
+  private final String type;
+  private final String after;
+  private boolean consumed;
+  private String next;
+
+  private KeysetCursor(String type, String after) {
+    this.type = type;
+    this.after = after;
+  }
+
+  /**
+   * Bind a cursor to the current thread.
+   *
+   * @param type json api type of the paged root collection
+   * @param after token of the previous page, empty for the first page
+   */
+  public static KeysetCursor open(String type, String after) {
+    KeysetCursor cursor = new KeysetCursor(type, after);
+    CURRENT.set(cursor);
+    return cursor;
+  }
+
+  public static void close() {
+    CURRENT.remove();
+  }
+
+  /**
+   * The cursor of the request running on this thread, if it pages the type and was not used yet.
+   * A request loads its root collection once, further loads are not paged by the cursor.
+   */
+  static KeysetCursor take(String type) {
+    KeysetCursor cursor = CURRENT.get();
+    if (cursor == null || cursor.consumed || !cursor.type.equals(type)) {
+      return null;
+    }
+    cursor.consumed = true;
+    return cursor;
+  }
+
+  /**
+   * Token of the page after this one, null if this is the last page.
+   */
+  public String getNext() {
+    return next;
+  }
+
+  /**
+   * The requested sort followed by the id, only attributes of the collection can be sorted.
+   */
+  static Map<String, Sorting.SortOrder> order(Class<?> entityClass,
+      Optional<Sorting> sorting, EntityDictionary dictionary) {
+    String idField = dictionary.getIdFieldName(entityClass);
+    Map<String, Sorting.SortOrder> order = new LinkedHashMap<>();
+    sorting.ifPresent(s -> s.getValidSortingRules(entityClass, dictionary).forEach((path, o) -> {
+      if (path.getPathElements().size() != 1) {
+        throw new InvalidValueException("Keyset pagination only sorts by attributes of "
+            + dictionary.getJsonAliasFor(entityClass) + ": " + path.getFieldPath());
+      }
+      order.put(path.getFieldPath(), o);
+    }));
+    order.putIfAbsent(idField, Sorting.SortOrder.asc);
+    return order;
+  }
+
+  /**
+   * The token shows the sort key of the last row read by the query, before the read checks
+   * running in memory. So the read checks of the type must all run in the query, and a sort
+   * field must only be guarded by user checks that pass.
+   */
+  static void checkReadable(Class<?> entityClass, Set<String> fields, RequestScope scope) {
+    EntityDictionary dictionary = scope.getDictionary();
+    String type = dictionary.getJsonAliasFor(entityClass);
+    CheckCollector collector = new CheckCollector(dictionary);
+    collector.visitPermission(dictionary.getPermissionsForClass(entityClass, ReadPermission.class));
+    if (!collector.checks.stream().allMatch(check -> check instanceof UserCheck
+        || check instanceof FilterExpressionCheck)) {
+      throw new InvalidValueException("Keyset pagination does not page " + type
+          + ", its read permission is checked in memory.");
+    }
+    for (String field : fields) {
+      ParseTree permission = dictionary.getPermissionsForField(entityClass, field,
+          ReadPermission.class);
+      if (permission == null) {
+        continue;
+      }
+      Boolean readable = new UserCheckEvaluator(scope).visit(permission);
+      if (readable == null) {
+        throw new InvalidValueException("Keyset pagination can not sort " + type + " by "
+            + field + ", its read permission is checked in memory.");
+      }
+      if (!readable) {
+        throw new ForbiddenAccessException("Keyset pagination can not sort " + type + " by "
+            + field + ".");
+      }
+    }
+  }
+
+  /**
+   * Resources after the key of the token, none for the first page.
+   * Nulls of the nullable attributes are ordered as by {@link KeysetQueryBuilder}.
+   * The first sort attribute is bounded on its own where that is a plain comparison,
+   * so the database can seek an index with it.
+   */
+  Optional<FilterExpression> predicate(Class<?> entityClass,
+      Map<String, Sorting.SortOrder> order, Set<String> nullable, EntityDictionary dictionary) {
+    if (after.isEmpty()) {
+      return Optional.empty();
+    }
+    List<Object> key = decode(entityClass, order, dictionary);
+    List<String> fields = new ArrayList<>(order.keySet());
+    FilterExpression seek = null;
+    for (int i = fields.size() - 1; i >= 0; i--) {
+      String field = fields.get(i);
+      boolean asc = order.get(field) == Sorting.SortOrder.asc;
+      Object value = key.get(i);
+      FilterExpression next = after(entityClass, field, asc, value, nullable.contains(field),
+          dictionary);
+      FilterExpression tie = seek == null ? null : new AndFilterExpression(value == null
+          ? filter(entityClass, field, Operator.ISNULL, null, dictionary)
+          : filter(entityClass, field, Operator.IN, value, dictionary), seek);
+      seek = next == null ? tie : tie == null ? next : new OrFilterExpression(next, tie);
+    }
+    String first = fields.get(0);
+    boolean asc = order.get(first) == Sorting.SortOrder.asc;
+    Object value = key.get(0);
+    FilterExpression bound = null;
+    if (value == null) {
+      bound = asc ? filter(entityClass, first, Operator.ISNULL, null, dictionary) : null;
+    } else if (!asc || !nullable.contains(first)) {
+      bound = filter(entityClass, first, asc ? Operator.GE : Operator.LE, value, dictionary);
+    }
+    return Optional.of(bound == null ? seek : new AndFilterExpression(bound, seek));
+  }
+
+  /**
+   * Values of the field after the value in the sort order, null if there are none.
+   */
+  private static FilterExpression after(Class<?> entityClass, String field, boolean asc,
+      Object value, boolean nullable, EntityDictionary dictionary) {
+    if (value == null) {
+      return asc ? null : filter(entityClass, field, Operator.NOTNULL, null, dictionary);
+    }
+    FilterExpression after = filter(entityClass, field, asc ? Operator.GT : Operator.LT,
+        value, dictionary);
+    return asc && nullable
+        ? new OrFilterExpression(after,
+            filter(entityClass, field, Operator.ISNULL, null, dictionary))
+        : after;
+  }
+
+  private static FilterPredicate filter(Class<?> entityClass, String field,
+      Operator operator, Object value, EntityDictionary dictionary) {
+    return new FilterPredicate(new Path(entityClass, dictionary, field), operator,
+        value == null ? Collections.emptyList() : Collections.singletonList(value));
+  }
+
+  /**
+   * Remember the key of the last resource of the page as the token of the next page.
+   */
+  void setLast(Object entity, Map<String, Sorting.SortOrder> order, RequestScope scope) {
+    ObjectNode token = MAPPER.createObjectNode();
+    token.put(SORT, sort(order));
+    ArrayNode key = token.putArray(KEY);
+    for (String field : order.keySet()) {
+      Object value = PersistentResource.getValue(entity, field, scope);
+      if (value == null) {
+        key.addNull();
+      } else {
+        key.addPOJO(serialize(value));
+      }
+    }
+    try {
+      next = Base64.getUrlEncoder().withoutPadding()
+          .encodeToString(MAPPER.writeValueAsBytes(token));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object serialize(Object value) {
+    Serde<Object, Object> serde = CoerceUtil.lookup((Class<Object>) value.getClass());
+    return serde == null ? value : serde.serialize(value);
+  }
+
+  private List<Object> decode(Class<?> entityClass, Map<String, Sorting.SortOrder> order,
+      EntityDictionary dictionary) {
+    JsonNode token;
+    try {
+      token = MAPPER.readTree(Base64.getUrlDecoder().decode(after));
+    } catch (IOException | IllegalArgumentException e) {
+      throw new InvalidValueException("Invalid page[after].");
+    }
+    JsonNode key = token.path(KEY);
+    if (!sort(order).equals(token.path(SORT).asText()) || key.size() != order.size()) {
+      throw new InvalidValueException("page[after] belongs to another sort.");
+    }
+    String idField = dictionary.getIdFieldName(entityClass);
+    List<Object> values = new ArrayList<>();
+    int i = 0;
+    for (String field : order.keySet()) {
+      Class<?> fieldType = field.equals(idField)
+          ? dictionary.getIdType(entityClass) : dictionary.getType(entityClass, field);
+      JsonNode value = key.get(i++);
+      try {
+        if (value.isNull()) {
+          values.add(null);
+        } else if (CoerceUtil.lookup(fieldType) != null) {
+          values.add(CoerceUtil.coerce(MAPPER.treeToValue(value, Object.class), fieldType));
+        } else {
+          values.add(MAPPER.treeToValue(value, fieldType));
+        }
+      } catch (IOException | IllegalArgumentException e) {
+        throw new InvalidValueException("Invalid page[after].");
+      }
+    }
+    return values;
+  }
+
+  private static String sort(Map<String, Sorting.SortOrder> order) {
+    return order.entrySet().stream()
+        .map(e -> (e.getValue() == Sorting.SortOrder.desc ? "-" : "") + e.getKey())
+        .collect(Collectors.joining(","));
+  }
+
+  private static class CheckCollector extends ExpressionBaseVisitor<Void>
+      implements CheckInstantiator {
+
+    private final EntityDictionary dictionary;
+    private final List<Check> checks = new ArrayList<>();
+
+    CheckCollector(EntityDictionary dictionary) {
+      this.dictionary = dictionary;
+    }
+
+    void visitPermission(ParseTree permission) {
+      if (permission != null) {
+        visit(permission);
+      }
+    }
+
+    @Override
+    public Void visitPermissionClass(ExpressionParser.PermissionClassContext ctx) {
+      checks.add(getCheck(dictionary, ctx.getText()));
+      return null;
+    }
+  }
+
+  /**
+   * The result of an expression of user checks, null if it has another check.
+   */
+  private static class UserCheckEvaluator extends ExpressionBaseVisitor<Boolean>
+      implements CheckInstantiator {
+
+    private final RequestScope scope;
+
+    UserCheckEvaluator(RequestScope scope) {
+      this.scope = scope;
+    }
+
+    @Override
+    public Boolean visitStart(ExpressionParser.StartContext ctx) {
+      return visit(ctx.expression());
+    }
+
+    @Override
+    public Boolean visitPAREN(ExpressionParser.PARENContext ctx) {
+      return visit(ctx.expression());
+    }
+
+    @Override
+    public Boolean visitPERMISSION(ExpressionParser.PERMISSIONContext ctx) {
+      return visit(ctx.permissionClass());
+    }
+
+    @Override
+    public Boolean visitNOT(ExpressionParser.NOTContext ctx) {
+      Boolean result = visit(ctx.expression());
+      return result == null ? null : !result;
+    }
+
+    @Override
+    public Boolean visitAND(ExpressionParser.ANDContext ctx) {
+      Boolean left = visit(ctx.expression(0));
+      Boolean right = visit(ctx.expression(1));
+      return left == null || right == null ? null : left && right;
+    }
+
+    @Override
+    public Boolean visitOR(ExpressionParser.ORContext ctx) {
+      Boolean left = visit(ctx.expression(0));
+      Boolean right = visit(ctx.expression(1));
+      return left == null || right == null ? null : left || right;
+    }
+
+    @Override
+    public Boolean visitPermissionClass(ExpressionParser.PermissionClassContext ctx) {
+      Check check = getCheck(scope.getDictionary(), ctx.getText());
+      return check instanceof UserCheck ? check.ok(scope.getUser()) : null;
+    }
+  }
+}
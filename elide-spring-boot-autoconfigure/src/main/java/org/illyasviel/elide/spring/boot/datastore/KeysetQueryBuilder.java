@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datastore;
+
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.hibernate.Session;
+import com.yahoo.elide.core.hibernate.hql.RootCollectionFetchQueryBuilder;
+import com.yahoo.elide.core.sort.Sorting;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Root collection query of a keyset page, ordered by the sort of its cursor.
+ * Nulls sort after every value in ascending order and before them in descending order,
+ * whatever the database does by default, so the cursor can seek past them.
+ *
+ * @author olOwOlo
+ */
+class KeysetQueryBuilder extends RootCollectionFetchQueryBuilder {
+
+  private final Map<String, Sorting.SortOrder> order;
+  private final Set<String> nullable;
+
+  KeysetQueryBuilder(Class<?> entityClass, Map<String, Sorting.SortOrder> order,
+      Set<String> nullable, EntityDictionary dictionary, Session session) {
+    super(entityClass, dictionary, session);
+    this.order = order;
+    this.nullable = nullable;
+  }
+
+  @Override
+  protected String getSortClause(Optional<Sorting> sorting, Class<?> sortClass,
+      boolean prefixWithAlias) {
+    String prefix = prefixWithAlias ? FilterPredicate.getTypeAlias(sortClass) + PERIOD : "";
+    List<String> ordering = new ArrayList<>();
+    order.forEach((field, sortOrder) -> {
+      boolean desc = sortOrder == Sorting.SortOrder.desc;
+      String nulls = nullable.contains(field) ? (desc ? " nulls first" : " nulls last") : "";
+      ordering.add(prefix + field + (desc ? " desc" : " asc") + nulls);
+    });
+    return " order by " + String.join(COMMA, ordering);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datastore;
+
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.filter.HQLFilterOperation;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.filter.expression.PredicateExtractionVisitor;
+import com.yahoo.elide.core.hibernate.Query;
+import com.yahoo.elide.core.hibernate.Session;
+import com.yahoo.elide.core.hibernate.hql.AbstractHQLQueryBuilder;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Root collection query selecting the given properties instead of the entity,
+ * each row is an array of the values in order.
+ * Unlike the fetch query of Elide, no to-one relationship is fetched.
+ *
+ * @author olOwOlo
+ */
+class ProjectionQueryBuilder extends AbstractHQLQueryBuilder {
+
+  private final Class<?> entityClass;
+  private final List<String> properties;
+
+  ProjectionQueryBuilder(Class<?> entityClass, List<String> properties,
+      EntityDictionary dictionary, Session session) {
+    super(dictionary, session);
+    this.entityClass = dictionary.lookupEntityClass(entityClass);
+    this.properties = properties;
+  }
+
+  @Override
+  public Query build() {
+    String entityName = entityClass.getCanonicalName();
+    String entityAlias = FilterPredicate.getTypeAlias(entityClass);
+    StringBuilder hql = new StringBuilder(SELECT);
+    for (int i = 0; i < properties.size(); i++) {
+      hql.append(i == 0 ? "" : COMMA).append(entityAlias).append(PERIOD).append(properties.get(i));
+    }
+    hql.append(FROM).append(entityName).append(AS).append(entityAlias).append(SPACE);
+    Collection<FilterPredicate> predicates = null;
+    if (filterExpression.isPresent()) {
+      predicates = filterExpression.get().accept(new PredicateExtractionVisitor());
+      hql.append(getJoinClauseFromFilters(filterExpression.get())).append(SPACE)
+          .append(new HQLFilterOperation().apply(filterExpression.get(), USE_ALIAS));
+    }
+    hql.append(getSortClause(sorting, entityClass, USE_ALIAS));
+    Query query = session.createQuery(hql.toString());
+    if (predicates != null) {
+      supplyFilterQueryParameters(query, predicates);
+    }
+    addPaginationToQuery(query);
+    return query;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datastore;
+
+import com.yahoo.elide.annotation.OnReadPostCommit;
+import com.yahoo.elide.annotation.OnReadPreCommit;
+import com.yahoo.elide.annotation.OnReadPreSecurity;
+import com.yahoo.elide.annotation.ReadPermission;
+import com.yahoo.elide.core.CheckInstantiator;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.Path;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.filter.expression.PredicateExtractionVisitor;
+import com.yahoo.elide.generated.parsers.ExpressionBaseVisitor;
+import com.yahoo.elide.generated.parsers.ExpressionParser;
+import com.yahoo.elide.security.FilterExpressionCheck;
+import com.yahoo.elide.security.checks.Check;
+import com.yahoo.elide.security.checks.UserCheck;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+/**
+ * The fields read in memory by the read checks and hooks of a projected entity.
+ * A user check reads no field and a filter check reads the fields of its predicates,
+ * any other check or a read hook may read every field, so the entity can not be projected.
+ *
+ * @author olOwOlo
+ */
+final class ProjectionReadChecks {
+
+  private static final List<Class<? extends Annotation>> READ_HOOKS =
+      Arrays.asList(OnReadPreSecurity.class, OnReadPreCommit.class, OnReadPostCommit.class);
+
+  private ProjectionReadChecks() {
+  }
+
+  /**
+   * The fields read by the checks of the type and of the projected fields, null if the
+   * entity must be loaded whole.
+   *
+   * @param entityClass projected entity
+   * @param fields projected fields
+   * @param scope request scope
+   */
+  static Set<String> fields(Class<?> entityClass, Collection<String> fields,
+      RequestScope scope) {
+    EntityDictionary dictionary = scope.getDictionary();
+    if (hasReadHooks(entityClass, dictionary)) {
+      return null;
+    }
+    CheckVisitor visitor = new CheckVisitor(entityClass, scope);
+    visitor.visitPermission(dictionary.getPermissionsForClass(entityClass, ReadPermission.class));
+    for (String field : fields) {
+      visitor.visitPermission(
+          dictionary.getPermissionsForField(entityClass, field, ReadPermission.class));
+    }
+    return visitor.projectable ? visitor.fields : null;
+  }
+
+  private static boolean hasReadHooks(Class<?> entityClass, EntityDictionary dictionary) {
+    List<String> fields = new ArrayList<>(dictionary.getAttributes(entityClass));
+    fields.addAll(dictionary.getRelationships(entityClass));
+    for (Class<? extends Annotation> hook : READ_HOOKS) {
+      if (!dictionary.getTriggers(entityClass, hook).isEmpty()) {
+        return true;
+      }
+      for (String field : fields) {
+        if (!dictionary.getTriggers(entityClass, hook, field).isEmpty()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static class CheckVisitor extends ExpressionBaseVisitor<Void>
+      implements CheckInstantiator {
+
+    private final Class<?> entityClass;
+    private final RequestScope scope;
+    private final Set<String> fields = new LinkedHashSet<>();
+    private boolean projectable = true;
+
+    CheckVisitor(Class<?> entityClass, RequestScope scope) {
+      this.entityClass = entityClass;
+      this.scope = scope;
+    }
+
+    void visitPermission(ParseTree permission) {
+      if (permission != null) {
+        visit(permission);
+      }
+    }
+
+    @Override
+    public Void visitPermissionClass(ExpressionParser.PermissionClassContext ctx) {
+      Check check = getCheck(scope.getDictionary(), ctx.getText());
+      if (check instanceof UserCheck) {
+        return null;
+      }
+      if (!(check instanceof FilterExpressionCheck)) {
+        projectable = false;
+        return null;
+      }
+      Collection<FilterPredicate> predicates = ((FilterExpressionCheck<?>) check)
+          .getFilterExpression(entityClass, scope).accept(new PredicateExtractionVisitor());
+      for (FilterPredicate predicate : predicates) {
+        List<Path.PathElement> path = predicate.getPath().getPathElements();
+        if (path.size() != 1) {
+          projectable = false;
+        } else {
+          fields.add(path.get(0).getFieldName());
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.datastore;
+
+import org.hibernate.Session;
+
+/**
+ * Estimate of the rows of a table read from the statistics of the database,
+ * used as page total of large unfiltered collections instead of a COUNT.
+ *
+ * @author olOwOlo
+ */
+@FunctionalInterface
+public interface RowCountEstimator {
+
+  /**
+   * The estimated number of rows of the table, null if unknown.
+   *
+   * @param session session of the counting transaction
+   * @param table table of the entity, may be qualified by its schema
+   */
+  Long estimate(Session session, String table);
+}
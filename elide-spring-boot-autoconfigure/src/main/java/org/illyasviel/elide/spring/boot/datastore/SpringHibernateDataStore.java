@@ -20,13 +20,20 @@ import com.google.common.base.Preconditions;
 import com.yahoo.elide.core.DataStore;
 import com.yahoo.elide.core.DataStoreTransaction;
 import com.yahoo.elide.core.EntityDictionary;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import javax.persistence.EntityManager;
 import javax.persistence.metamodel.EntityType;
+import org.hibernate.FlushMode;
 import org.hibernate.ScrollMode;
 import org.hibernate.Session;
 import org.illyasviel.elide.spring.boot.autoconfigure.ElideProperties;
+import org.illyasviel.elide.spring.boot.exception.ServiceUnavailableException;
+import org.illyasviel.elide.spring.boot.metrics.ElideMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
@@ -34,6 +41,7 @@ import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Spring Hibernate DataStore.
@@ -50,6 +58,14 @@ public class SpringHibernateDataStore implements DataStore {
   protected final boolean isScrollEnabled;
   protected final ScrollMode scrollMode;
   protected final HibernateTransactionSupplier transactionSupplier;
+  /**
+   * Bound of the concurrent transactions, null if unbounded.
+   */
+  protected final Semaphore transactionPermits;
+  protected ElideMetrics metrics = ElideMetrics.NOOP;
+  protected final List<EntityChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+  protected CountCache countCache;
+  protected RowCountEstimator rowCountEstimator;
 
   /**
    * Constructor.
@@ -96,6 +112,8 @@ public class SpringHibernateDataStore implements DataStore {
     this.isScrollEnabled = isScrollEnabled;
     this.scrollMode = scrollMode;
     this.transactionSupplier = transactionSupplier;
+    int maxTransactions = elideProperties.getExecution().getMaxTransactions();
+    this.transactionPermits = maxTransactions > 0 ? new Semaphore(maxTransactions, true) : null;
   }
 
   @Override
@@ -133,18 +151,125 @@ public class SpringHibernateDataStore implements DataStore {
 
   @Override
   public DataStoreTransaction beginTransaction() {
+    return beginTransaction(false);
+  }
+
+  /**
+   * Begin a spring transaction and wrap it as an elide transaction.
+   *
+   * @param readOnly Whether or not the transaction is read-only
+   */
+  protected DataStoreTransaction beginTransaction(boolean readOnly) {
+    // A joined transaction already holds its connection.
+    Semaphore permits = TransactionSynchronizationManager.isActualTransactionActive()
+        ? null : transactionPermits;
+    if (permits != null) {
+      acquire(permits);
+    }
+    try {
+      long start = System.nanoTime();
+      SpringHibernateTransaction tx = beginSpringTransaction(readOnly);
+      metrics.recordTransaction("begin", readOnly, System.nanoTime() - start);
+      tx.setMetrics(metrics);
+      tx.setChangeListeners(changeListeners);
+      ElideProperties.SecondLevelCacheProperties secondLevelCache =
+          elideProperties.getSecondLevelCache();
+      if (secondLevelCache.isEnabled()) {
+        tx.setSecondLevelCache(true,
+            secondLevelCache.isQueryCache() ? secondLevelCache.getQueryCacheMaxResults() : 0);
+      }
+      tx.setCountCache(countCache);
+      tx.setFieldsetProjection(elideProperties.isFieldsetProjection());
+      tx.setFetchIncludes(elideProperties.isFetchIncludes());
+      ElideProperties.BulkWriteProperties bulkWrite = elideProperties.getBulkWrite();
+      if (bulkWrite.isEnabled()) {
+        tx.setBulkWrite(bulkWrite.getJdbcBatchSize(), bulkWrite.getFlushSize());
+      }
+      if (rowCountEstimator != null) {
+        tx.setRowCountEstimator(rowCountEstimator,
+            elideProperties.getCount().getApproximateThreshold());
+      }
+      if (permits != null) {
+        tx.setReleaseCallback(permits::release);
+      }
+      return tx;
+    } catch (RuntimeException | Error e) {
+      if (permits != null) {
+        permits.release();
+      }
+      throw e;
+    }
+  }
+
+  private SpringHibernateTransaction beginSpringTransaction(boolean readOnly) {
     // begin a spring transaction
     DefaultTransactionDefinition def = new DefaultTransactionDefinition();
-    def.setName("elide transaction");
+    def.setName(readOnly ? "elide read transaction" : "elide transaction");
     def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+    def.setReadOnly(readOnly);
     TransactionStatus txStatus = txManager.getTransaction(def);
 
     Session session = entityManager.unwrap(Session.class);
     Preconditions.checkNotNull(session);
 
+    // A joined transaction keeps the session state of the outer transaction.
+    if (readOnly && txStatus.isNewTransaction()) {
+      session.setHibernateFlushMode(FlushMode.MANUAL);
+      session.setDefaultReadOnly(true);
+    }
+
     return transactionSupplier.get(session, txManager, txStatus, isScrollEnabled, scrollMode);
   }
 
+  /**
+   * Receiver of the begin, flush and commit durations of the transactions.
+   */
+  public void setMetrics(ElideMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Notified after the commit of each transaction writing entities.
+   */
+  public void addChangeListener(EntityChangeListener listener) {
+    changeListeners.add(listener);
+  }
+
+  /**
+   * Cache of the page totals, null to always count.
+   */
+  public void setCountCache(CountCache countCache) {
+    this.countCache = countCache;
+  }
+
+  /**
+   * Estimates the page totals of large unfiltered collections, null to always count.
+   */
+  public void setRowCountEstimator(RowCountEstimator rowCountEstimator) {
+    this.rowCountEstimator = rowCountEstimator;
+  }
+
+  private void acquire(Semaphore permits) {
+    long waitMillis = elideProperties.getExecution().getTransactionWait().toMillis();
+    try {
+      if (!permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+        throw new ServiceUnavailableException("Too many concurrent transactions");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailableException("Interrupted while waiting for a transaction");
+    }
+  }
+
+  /**
+   * Begin a read-only transaction, used by Elide for GET requests and by GraphQL queries.
+   * Hibernate neither keeps snapshots for dirty checking nor flushes the session.
+   */
+  @Override
+  public DataStoreTransaction beginReadTransaction() {
+    return beginTransaction(true);
+  }
+
   /**
    * Functional interface for describing a method to supply a custom Hibernate transaction.
    */
@@ -16,17 +16,57 @@
 
 package org.illyasviel.elide.spring.boot.datastore;
 
+import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.exceptions.InvalidValueException;
 import com.yahoo.elide.core.exceptions.TransactionException;
+import com.yahoo.elide.core.filter.expression.AndFilterExpression;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.hibernate.hql.RootCollectionFetchQueryBuilder;
+import com.yahoo.elide.core.hibernate.hql.RootCollectionPageTotalsQueryBuilder;
+import com.yahoo.elide.core.pagination.Pagination;
+import com.yahoo.elide.core.sort.Sorting;
 import com.yahoo.elide.datastores.hibernate5.HibernateTransaction;
+import com.yahoo.elide.datastores.hibernate5.porting.QueryWrapper;
+import com.yahoo.elide.datastores.hibernate5.porting.SessionWrapper;
 import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import javax.persistence.EntityGraph;
 import javax.persistence.PersistenceException;
 import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.Joinable;
+import org.hibernate.tuple.entity.EntityMetamodel;
+import org.hibernate.type.Type;
 import org.illyasviel.elide.spring.boot.exception.UnprocessableEntityException;
+import org.illyasviel.elide.spring.boot.metrics.ElideMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Spring Hibernate Transaction.
@@ -34,9 +74,31 @@ import org.springframework.transaction.TransactionStatus;
  */
 public class SpringHibernateTransaction extends HibernateTransaction {
 
+  private static final Logger logger = LoggerFactory.getLogger(SpringHibernateTransaction.class);
+
   private final Session session;
   private final TransactionStatus txStatus;
   private final PlatformTransactionManager txManager;
+  private final boolean readOnly;
+  private Runnable releaseCallback;
+  private ElideMetrics metrics = ElideMetrics.NOOP;
+  private List<EntityChangeListener> changeListeners = Collections.emptyList();
+  private boolean secondLevelCache;
+  private int queryCacheMaxResults;
+  private CountCache countCache;
+  private RowCountEstimator rowCountEstimator;
+  private long approximateCountThreshold;
+  private boolean fieldsetProjection;
+  private boolean fetchIncludes;
+  private int flushSize;
+  /**
+   * Entities created by Elide, persisted in chunks on flush in bulk-write mode.
+   */
+  private final List<Object> pendingCreates = new ArrayList<>();
+  /**
+   * Entities written by Elide, resolved to type and id after flush.
+   */
+  private final Set<Object> changedEntities = Collections.newSetFromMap(new IdentityHashMap<>());
 
   /**
    * Constructor.
@@ -56,12 +118,16 @@ public class SpringHibernateTransaction extends HibernateTransaction {
     this.session = session;
     this.txManager = txManager;
     this.txStatus = txStatus;
+    this.readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
   }
 
   @Override
   public void flush(RequestScope requestScope) {
+    long start = System.nanoTime();
     try {
+      persistPendingCreates();
       super.flush(requestScope);
+      metrics.recordTransaction("flush", readOnly, System.nanoTime() - start);
     } catch (TransactionException e) {
       PersistenceException pe = (PersistenceException) e.getCause();
       if (pe.getCause() instanceof ConstraintViolationException) {
@@ -73,21 +139,507 @@ public class SpringHibernateTransaction extends HibernateTransaction {
     }
   }
 
+  @Override
+  public void createObject(Object entity, RequestScope scope) {
+    recordChange(entity);
+    if (flushSize > 0) {
+      pendingCreates.add(entity);
+    } else {
+      super.createObject(entity, scope);
+    }
+  }
+
+  /**
+   * Persist the created entities in creation order, the session is flushed every flushSize
+   * entities so the inserts go out in JDBC batches while the action queue stays small.
+   * Hibernate inserts before it deletes anyway, so running them ahead of the other deferred
+   * writes keeps the order of the statements.
+   */
+  private void persistPendingCreates() {
+    if (pendingCreates.isEmpty()) {
+      return;
+    }
+    try {
+      for (int i = 0; i < pendingCreates.size(); i++) {
+        session.persist(pendingCreates.get(i));
+        if ((i + 1) % flushSize == 0) {
+          session.flush();
+        }
+      }
+    } catch (PersistenceException e) {
+      throw new TransactionException(e);
+    } finally {
+      pendingCreates.clear();
+    }
+  }
+
+  @Override
+  public void save(Object object, RequestScope scope) {
+    recordChange(object);
+    super.save(object, scope);
+  }
+
+  @Override
+  public void delete(Object object, RequestScope scope) {
+    recordChange(object);
+    super.delete(object, scope);
+  }
+
+  /**
+   * A cached entity is looked up by id, the query of Elide would always reach the database.
+   */
+  @Override
+  public Object loadObject(Class<?> entityClass, Serializable id,
+      Optional<FilterExpression> filterExpression, RequestScope scope) {
+    if (secondLevelCache && id != null && !filterExpression.isPresent()
+        && getPersister(entityClass).canReadFromCache()) {
+      return session.get(entityClass, id);
+    }
+    return super.loadObject(entityClass, id, filterExpression, scope);
+  }
+
+  /**
+   * A keyset paged root collection is loaded after the key of its cursor.
+   * A small page of a cached entity is loaded by a cacheable query,
+   * the cached ids are resolved from the second-level cache.
+   * Page totals are read from the count cache or estimated when configured.
+   * A sparse fieldset of attributes only is selected instead of the whole rows.
+   * The included relationships are fetched as planned by {@link IncludeFetchPlanner}.
+   */
+  @Override
+  public Iterable<Object> loadObjects(Class<?> entityClass,
+      Optional<FilterExpression> filterExpression, Optional<Sorting> sorting,
+      Optional<Pagination> pagination, RequestScope scope) {
+    EntityDictionary dictionary = scope.getDictionary();
+    KeysetCursor cursor = pagination.isPresent()
+        ? KeysetCursor.take(dictionary.getJsonAliasFor(entityClass)) : null;
+    if (cursor != null) {
+      return loadKeysetPage(cursor, entityClass, filterExpression, sorting, pagination.get(),
+          scope);
+    }
+    List<String> properties = fieldsetProjection && readOnly
+        ? projectedProperties(entityClass, scope) : null;
+    if (properties != null) {
+      return loadProjection(properties, entityClass, filterExpression, sorting, pagination,
+          dictionary);
+    }
+    boolean cacheable = isQueryCacheable(entityClass, pagination);
+    boolean countTotals = pagination.isPresent() && pagination.get().isGenerateTotals()
+        && (countCache != null || rowCountEstimator != null);
+    EntityGraph<?> fetchGraph = fetchIncludes
+        ? IncludeFetchPlanner.plan(session, entityClass, scope, pagination.isPresent()) : null;
+    if (!cacheable && !countTotals && fetchGraph == null) {
+      return super.loadObjects(entityClass, filterExpression, sorting, pagination, scope);
+    }
+    SessionWrapper sessionWrapper = new SessionWrapper(session);
+    if (pagination.isPresent()) {
+      setPageTotals(entityClass, filterExpression, pagination.get(), dictionary, sessionWrapper,
+          cacheable);
+    }
+    QueryWrapper query = (QueryWrapper) new RootCollectionFetchQueryBuilder(entityClass,
+        dictionary, sessionWrapper)
+        .withPossibleFilterExpression(filterExpression)
+        .withPossibleSorting(sorting)
+        .withPossiblePagination(pagination)
+        .build();
+    if (fetchGraph == null) {
+      return query.getQuery().setCacheable(cacheable).list();
+    }
+    // A joined collection repeats its owner.
+    Set<Object> entities = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<Object> rows = query.getQuery().setCacheable(cacheable)
+        .setHint(IncludeFetchPlanner.LOAD_GRAPH, fetchGraph).list();
+    return rows.stream().filter(entities::add).collect(Collectors.toList());
+  }
+
+  /**
+   * One row more than the page tells whether there is a next page.
+   */
+  private Iterable<Object> loadKeysetPage(KeysetCursor cursor, Class<?> entityClass,
+      Optional<FilterExpression> filterExpression, Optional<Sorting> sorting, Pagination page,
+      RequestScope scope) {
+    if (page.getOffset() != 0) {
+      throw new InvalidValueException(
+          "page[after] can not be combined with page[number] or page[offset].");
+    }
+    EntityDictionary dictionary = scope.getDictionary();
+    Map<String, Sorting.SortOrder> order = KeysetCursor.order(entityClass, sorting, dictionary);
+    KeysetCursor.checkReadable(entityClass, order.keySet(), scope);
+    Set<String> nullable = nullableProperties(entityClass, order.keySet());
+    Optional<FilterExpression> seek = cursor.predicate(entityClass, order, nullable, dictionary);
+    Optional<FilterExpression> keysetFilter = filterExpression;
+    if (seek.isPresent()) {
+      keysetFilter = Optional.of(filterExpression.isPresent()
+          ? new AndFilterExpression(filterExpression.get(), seek.get()) : seek.get());
+    }
+    SessionWrapper sessionWrapper = new SessionWrapper(session);
+    setPageTotals(entityClass, filterExpression, page, dictionary, sessionWrapper, false);
+    QueryWrapper query = (QueryWrapper) new KeysetQueryBuilder(entityClass, order, nullable,
+        dictionary, sessionWrapper)
+        .withPossibleFilterExpression(keysetFilter)
+        .build();
+    List<Object> rows = query.getQuery().setMaxResults(page.getLimit() + 1).list();
+    if (rows.size() <= page.getLimit()) {
+      return rows;
+    }
+    rows = rows.subList(0, page.getLimit());
+    cursor.setLast(rows.get(rows.size() - 1), order, scope);
+    return rows;
+  }
+
+  /**
+   * The resources are detached entities holding only the id and the projected attributes,
+   * they are never written by a read-only transaction.
+   */
+  private Iterable<Object> loadProjection(List<String> properties, Class<?> entityClass,
+      Optional<FilterExpression> filterExpression, Optional<Sorting> sorting,
+      Optional<Pagination> pagination, EntityDictionary dictionary) {
+    SessionWrapper sessionWrapper = new SessionWrapper(session);
+    if (pagination.isPresent()) {
+      setPageTotals(entityClass, filterExpression, pagination.get(), dictionary, sessionWrapper,
+          false);
+    }
+    QueryWrapper query = (QueryWrapper) new ProjectionQueryBuilder(entityClass, properties,
+        dictionary, sessionWrapper)
+        .withPossibleFilterExpression(filterExpression)
+        .withPossibleSorting(sorting)
+        .withPossiblePagination(pagination)
+        .build();
+    EntityPersister persister = getPersister(entityClass);
+    EntityMetamodel metamodel = persister.getEntityMetamodel();
+    SharedSessionContractImplementor source = (SharedSessionContractImplementor) session;
+    List<Object> entities = new ArrayList<>();
+    for (Object result : query.getQuery().list()) {
+      Object[] row = result instanceof Object[] ? (Object[]) result : new Object[] {result};
+      Object entity = persister.instantiate((Serializable) row[0], source);
+      for (int i = 1; i < row.length; i++) {
+        persister.setPropertyValue(entity, metamodel.getPropertyIndex(properties.get(i)), row[i]);
+      }
+      entities.add(entity);
+    }
+    return entities;
+  }
+
+  /**
+   * Stream a root collection from a forward-only cursor, for exports. Unlike the scrolling of
+   * {@link HibernateTransaction} a row is only fetched when it is asked for, so the session
+   * can be cleared between two rows. The cursor is closed at its end or with the session.
+   *
+   * @param fetchSize JDBC fetch size, 0 for the driver default
+   */
+  public Iterator<Object> scrollObjects(Class<?> entityClass,
+      Optional<FilterExpression> filterExpression, Optional<Sorting> sorting,
+      EntityDictionary dictionary, int fetchSize) {
+    QueryWrapper query = (QueryWrapper) new RootCollectionFetchQueryBuilder(entityClass,
+        dictionary, new SessionWrapper(session))
+        .withPossibleFilterExpression(filterExpression)
+        .withPossibleSorting(sorting)
+        .build();
+    if (fetchSize > 0) {
+      query.getQuery().setFetchSize(fetchSize);
+    }
+    ScrollableResults results = query.getQuery().setReadOnly(true)
+        .scroll(ScrollMode.FORWARD_ONLY);
+    return new Iterator<Object>() {
+      private Boolean hasNext;
+
+      @Override
+      public boolean hasNext() {
+        if (hasNext == null) {
+          hasNext = results.next();
+          if (!hasNext) {
+            results.close();
+          }
+        }
+        return hasNext;
+      }
+
+      @Override
+      public Object next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        hasNext = null;
+        return results.get(0);
+      }
+    };
+  }
+
+  /**
+   * The id followed by the fields of the sparse fieldset of the type and those read by its
+   * filter checks, null if the whole entity is needed: no fieldset, included relationships,
+   * a field that is not a persistent attribute (relationship, element collection, computed
+   * attribute), or read checks and hooks that may read any field.
+   */
+  private List<String> projectedProperties(Class<?> entityClass, RequestScope scope) {
+    Map<String, Set<String>> sparseFields = scope.getSparseFields();
+    if (sparseFields.isEmpty()
+        || scope.getQueryParams().map(params -> params.containsKey("include")).orElse(false)) {
+      return null;
+    }
+    EntityPersister persister = getPersister(entityClass);
+    // The rows are instantiated as the entity, not as the subclass they belong to.
+    if (persister.getIdentifierPropertyName() == null
+        || persister.getEntityMetamodel().hasSubclasses()
+        || Modifier.isAbstract(entityClass.getModifiers())) {
+      return null;
+    }
+    List<String> properties = new ArrayList<>();
+    properties.add(persister.getIdentifierPropertyName());
+    Set<String> fields = sparseFields.getOrDefault(
+        scope.getDictionary().getJsonAliasFor(entityClass), Collections.emptySet());
+    Set<String> checkedFields = ProjectionReadChecks.fields(entityClass, fields, scope);
+    if (checkedFields == null) {
+      return null;
+    }
+    Set<String> selected = new LinkedHashSet<>(fields);
+    selected.addAll(checkedFields);
+    selected.remove(persister.getIdentifierPropertyName());
+    EntityMetamodel metamodel = persister.getEntityMetamodel();
+    for (String field : selected) {
+      Integer index = metamodel.getPropertyIndexOrNull(field);
+      if (index == null) {
+        return null;
+      }
+      Type type = metamodel.getPropertyTypes()[index];
+      if (type.isAssociationType() || type.isCollectionType()) {
+        return null;
+      }
+      properties.add(field);
+    }
+    return properties;
+  }
+
+  private void setPageTotals(Class<?> entityClass,
+      Optional<FilterExpression> filterExpression, Pagination page, EntityDictionary dictionary,
+      SessionWrapper sessionWrapper, boolean cacheable) {
+    if (!page.isGenerateTotals()) {
+      return;
+    }
+    Long estimate = filterExpression.isPresent() ? null : estimateRowCount(entityClass);
+    if (estimate != null) {
+      page.setPageTotals(estimate);
+      return;
+    }
+    LongSupplier count = () -> {
+      QueryWrapper totals = (QueryWrapper) new RootCollectionPageTotalsQueryBuilder(entityClass,
+          dictionary, sessionWrapper)
+          .withPossibleFilterExpression(filterExpression)
+          .build();
+      return (Long) totals.getQuery().setCacheable(cacheable).uniqueResult();
+    };
+    // A write transaction may count its own uncommitted rows.
+    page.setPageTotals(countCache != null && readOnly
+        ? countCache.get(entityClass, filterExpression, dictionary, count)
+        : count.getAsLong());
+  }
+
+  /**
+   * The estimated rows of the table of the entity, null if unknown or below the threshold.
+   * Only an entity that owns its table is estimated, the rows of a table shared with a
+   * subclass or another entity are not all instances of it.
+   */
+  private Long estimateRowCount(Class<?> entityClass) {
+    EntityPersister persister = getPersister(entityClass);
+    if (rowCountEstimator == null || !(persister instanceof Joinable)
+        || persister.getEntityMetamodel().hasSubclasses()) {
+      return null;
+    }
+    String table = ((Joinable) persister).getTableName();
+    boolean shared = ((SessionFactoryImplementor) session.getSessionFactory()).getMetamodel()
+        .entityPersisters().values().stream()
+        .anyMatch(other -> other != persister && other instanceof Joinable
+            && table.equalsIgnoreCase(((Joinable) other).getTableName()));
+    if (shared) {
+      return null;
+    }
+    Long estimate = rowCountEstimator.estimate(session, table);
+    return estimate != null && estimate >= approximateCountThreshold ? estimate : null;
+  }
+
+  private boolean isQueryCacheable(Class<?> entityClass, Optional<Pagination> pagination) {
+    return secondLevelCache && queryCacheMaxResults > 0
+        && pagination.isPresent() && pagination.get().getLimit() <= queryCacheMaxResults
+        && getPersister(entityClass).canReadFromCache();
+  }
+
+  /**
+   * The properties that may hold null, the id never does.
+   */
+  private Set<String> nullableProperties(Class<?> entityClass, Collection<String> fields) {
+    EntityMetamodel metamodel = getPersister(entityClass).getEntityMetamodel();
+    Set<String> nullable = new HashSet<>();
+    for (String field : fields) {
+      Integer index = metamodel.getPropertyIndexOrNull(field);
+      if (index != null && metamodel.getPropertyNullability()[index]) {
+        nullable.add(field);
+      }
+    }
+    return nullable;
+  }
+
+  private EntityPersister getPersister(Class<?> entityClass) {
+    return ((SessionFactoryImplementor) session.getSessionFactory()).getMetamodel()
+        .entityPersister(entityClass);
+  }
+
   @Override
   public void commit(RequestScope scope) {
     try {
-      flush(scope);
+      if (!readOnly) {
+        flush(scope);
+      }
+      notifyAfterCommit(scope);
+      long start = System.nanoTime();
       txManager.commit(txStatus);
+      metrics.recordTransaction("commit", readOnly, System.nanoTime() - start);
     } catch (org.springframework.transaction.TransactionException e) {
       throw new TransactionException(e);
+    } finally {
+      resetReadOnly();
     }
   }
 
   @Override
   public void close() throws IOException {
-    if (session.isOpen() && !txStatus.isCompleted()) {
-      txManager.rollback(txStatus);
-      throw new IOException("Transaction not closed");
+    try {
+      if (session.isOpen() && !txStatus.isCompleted()) {
+        try {
+          txManager.rollback(txStatus);
+        } finally {
+          resetReadOnly();
+        }
+        throw new IOException("Transaction not closed");
+      }
+    } finally {
+      if (releaseCallback != null) {
+        releaseCallback.run();
+        releaseCallback = null;
+      }
+    }
+  }
+
+  /**
+   * Run once when this transaction is closed, e.g. release the permit of the data store.
+   */
+  void setReleaseCallback(Runnable releaseCallback) {
+    this.releaseCallback = releaseCallback;
+  }
+
+  void setMetrics(ElideMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  void setChangeListeners(List<EntityChangeListener> changeListeners) {
+    this.changeListeners = changeListeners;
+  }
+
+  /**
+   * Read the cached entities through the second-level cache, pages up to queryCacheMaxResults
+   * through the query cache (0 to disable).
+   */
+  void setSecondLevelCache(boolean secondLevelCache, int queryCacheMaxResults) {
+    this.secondLevelCache = secondLevelCache;
+    this.queryCacheMaxResults = queryCacheMaxResults;
+  }
+
+  /**
+   * Read the page totals of read-only transactions through the count cache, null to disable.
+   */
+  void setCountCache(CountCache countCache) {
+    this.countCache = countCache;
+  }
+
+  /**
+   * Use the estimate as total of an unfiltered collection if it reaches the threshold,
+   * null to always count.
+   */
+  void setRowCountEstimator(RowCountEstimator rowCountEstimator, long threshold) {
+    this.rowCountEstimator = rowCountEstimator;
+    this.approximateCountThreshold = threshold;
+  }
+
+  /**
+   * Select only the sparse fieldset of the root collections of read-only transactions.
+   */
+  void setFieldsetProjection(boolean fieldsetProjection) {
+    this.fieldsetProjection = fieldsetProjection;
+  }
+
+  /**
+   * Fetch the included relationships with the root collection query.
+   */
+  void setFetchIncludes(boolean fetchIncludes) {
+    this.fetchIncludes = fetchIncludes;
+  }
+
+  /**
+   * Send the writes in JDBC batches of jdbcBatchSize and flush the created entities every
+   * flushSize entities. Only applied to a transaction that owns its session.
+   */
+  void setBulkWrite(int jdbcBatchSize, int flushSize) {
+    if (readOnly || !txStatus.isNewTransaction()) {
+      return;
+    }
+    session.setJdbcBatchSize(jdbcBatchSize);
+    this.flushSize = flushSize;
+  }
+
+  private void recordChange(Object entity) {
+    if (!changeListeners.isEmpty()) {
+      changedEntities.add(entity);
+    }
+  }
+
+  /**
+   * Notify the listeners once the spring transaction is committed, which is the outer
+   * transaction if this one joined it. Ids are generated by now.
+   */
+  private void notifyAfterCommit(RequestScope scope) {
+    if (changedEntities.isEmpty()
+        || !TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+    EntityDictionary dictionary = scope.getDictionary();
+    Map<String, Set<String>> changes = new HashMap<>();
+    for (Object entity : changedEntities) {
+      changes.computeIfAbsent(dictionary.getJsonAliasFor(entity.getClass()),
+          type -> new HashSet<>()).add(dictionary.getId(entity));
+    }
+    changedEntities.clear();
+    List<EntityChangeListener> listeners = changeListeners;
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronizationAdapter() {
+          @Override
+          public void afterCommit() {
+            for (EntityChangeListener listener : listeners) {
+              try {
+                listener.afterCommit(changes);
+              } catch (RuntimeException e) {
+                logger.warn("Entity change listener failed.", e);
+              }
+            }
+          }
+        });
+  }
+
+  /**
+   * Whether this transaction is read-only, flush is skipped on commit.
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  /**
+   * The session may outlive the transaction (e.g. open-in-view),
+   * entities loaded by later transactions should be writable again.
+   */
+  private void resetReadOnly() {
+    if (readOnly && txStatus.isNewTransaction() && session.isOpen()) {
+      session.setDefaultReadOnly(false);
+    }
+    if (flushSize > 0 && session.isOpen()) {
+      session.setJdbcBatchSize(null);
     }
   }
 
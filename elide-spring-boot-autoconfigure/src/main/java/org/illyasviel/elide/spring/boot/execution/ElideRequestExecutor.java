@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.execution;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Bounded executor of Elide requests, used by the async controllers.
+ * A request is rejected instead of queued when all the threads are busy and the queue is full.
+ * <br>
+ * It is not an {@link java.util.concurrent.Executor} on purpose, an Executor bean would replace
+ * the task executor of Spring Boot.
+ *
+ * @author olOwOlo
+ */
+public class ElideRequestExecutor {
+
+  private static final Logger log = LoggerFactory.getLogger(ElideRequestExecutor.class);
+
+  private final ExecutorService executor;
+  /**
+   * Bound of the requests in flight when each request has its own thread, null otherwise.
+   */
+  private final Semaphore permits;
+  private final int maxRequests;
+
+  /**
+   * Constructor.
+   *
+   * @param poolSize number of threads
+   * @param queueCapacity number of requests waiting for a thread, 0 to wait for none
+   */
+  public ElideRequestExecutor(int poolSize, int queueCapacity) {
+    BlockingQueue<Runnable> queue = queueCapacity > 0
+        ? new ArrayBlockingQueue<>(queueCapacity)
+        : new SynchronousQueue<>();
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+        queue, new CustomizableThreadFactory("elide-request-"),
+        new ThreadPoolExecutor.AbortPolicy());
+    pool.allowCoreThreadTimeOut(true);
+    this.executor = pool;
+    this.permits = null;
+    this.maxRequests = poolSize + queueCapacity;
+  }
+
+  private ElideRequestExecutor(ExecutorService executor, int maxRequests) {
+    this.executor = executor;
+    this.permits = new Semaphore(maxRequests);
+    this.maxRequests = maxRequests;
+  }
+
+  /**
+   * Executor running each request on its own virtual thread, at most maxRequests at once.
+   * Falls back to a pool of platform threads when the JDK has no virtual threads.
+   *
+   * @param poolSize number of platform threads, if there are no virtual threads
+   * @param queueCapacity number of requests waiting for a platform thread
+   * @return executor
+   */
+  public static ElideRequestExecutor virtualThreads(int poolSize, int queueCapacity) {
+    ExecutorService virtualThreadExecutor;
+    try {
+      virtualThreadExecutor = (ExecutorService) Executors.class
+          .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      log.warn("Virtual threads are not supported by this JDK, use platform threads instead.");
+      return new ElideRequestExecutor(poolSize, queueCapacity);
+    }
+    return new ElideRequestExecutor(virtualThreadExecutor, poolSize + queueCapacity);
+  }
+
+  /**
+   * Run the request on the executor.
+   *
+   * @param request request
+   * @param <T> type of the response
+   * @return future response
+   * @throws RejectedExecutionException if the executor is full
+   */
+  public <T> CompletableFuture<T> submit(Supplier<T> request) {
+    if (permits == null) {
+      return CompletableFuture.supplyAsync(request, executor);
+    }
+    if (!permits.tryAcquire()) {
+      throw new RejectedExecutionException("Too many requests in flight");
+    }
+    try {
+      return CompletableFuture.supplyAsync(request, executor)
+          .whenComplete((response, e) -> permits.release());
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Number of requests being executed.
+   */
+  public int getActiveCount() {
+    return permits == null
+        ? ((ThreadPoolExecutor) executor).getActiveCount()
+        : maxRequests - permits.availablePermits();
+  }
+
+  /**
+   * Number of requests waiting for a thread.
+   */
+  public int getQueueSize() {
+    return permits == null ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+  }
+
+  public int getMaxRequests() {
+    return maxRequests;
+  }
+
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.graphql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * <p>Cache parsed and validated GraphQL documents keyed by query text.</p>
+ * The weight of an entry is the length of its query, so a few huge queries
+ * can not hold the memory of many small ones.
+ *
+ * @author olOwOlo
+ */
+public class CachingPreparsedDocumentProvider implements PreparsedDocumentProvider {
+
+  private final Cache<String, PreparsedDocumentEntry> cache;
+
+  /**
+   * Constructor.
+   *
+   * @param maximumWeight Maximum total length of the cached queries
+   */
+  public CachingPreparsedDocumentProvider(long maximumWeight) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maximumWeight)
+        .weigher((String query, PreparsedDocumentEntry entry) -> query.length())
+        .recordStats()
+        .build();
+  }
+
+  @Override
+  public PreparsedDocumentEntry get(String query,
+      Function<String, PreparsedDocumentEntry> computeFunction) {
+    try {
+      return cache.get(query, () -> computeFunction.apply(query));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Hit, miss and eviction statistics.
+   */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+}
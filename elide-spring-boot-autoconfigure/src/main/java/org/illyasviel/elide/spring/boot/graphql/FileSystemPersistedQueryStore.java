@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.graphql;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Disk-backed {@link PersistedQueryStore}, one file per query.</p>
+ * Survives restarts and can be shared by several nodes through a shared directory.
+ * Once it holds more than maximumSize queries, the oldest tenth of them is deleted.
+ *
+ * @author olOwOlo
+ */
+public class FileSystemPersistedQueryStore implements PersistedQueryStore {
+
+  private static final String SUFFIX = ".graphql";
+
+  private final Path directory;
+  private final long maximumSize;
+  private final AtomicLong size;
+
+  /**
+   * Constructor.
+   *
+   * @param directory Directory of the persisted queries, created if missing
+   * @param maximumSize Maximum number of persisted queries
+   */
+  public FileSystemPersistedQueryStore(Path directory, long maximumSize) {
+    this.directory = directory;
+    this.maximumSize = maximumSize;
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.size = new AtomicLong(queries().size());
+  }
+
+  @Override
+  public String get(String hash) {
+    Path file = directory.resolve(hash + SUFFIX);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try {
+      return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void put(String hash, String query) {
+    Path file = directory.resolve(hash + SUFFIX);
+    if (Files.isRegularFile(file)) {
+      return;
+    }
+    try {
+      // write then move, a concurrent reader never sees a partial query
+      Path tmp = Files.createTempFile(directory, hash, ".tmp");
+      Files.write(tmp, query.getBytes(StandardCharsets.UTF_8));
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (size.incrementAndGet() > maximumSize) {
+      evict();
+    }
+  }
+
+  /**
+   * Delete the oldest queries, the directory is listed again since other nodes may share it.
+   */
+  private synchronized void evict() {
+    List<Path> queries = queries();
+    if (queries.size() <= maximumSize) {
+      size.set(queries.size());
+      return;
+    }
+    queries.sort(Comparator.comparing(FileSystemPersistedQueryStore::lastModified));
+    long keep = maximumSize - maximumSize / 10;
+    int deleted = 0;
+    for (Path query : queries.subList(0, (int) (queries.size() - keep))) {
+      try {
+        Files.deleteIfExists(query);
+        deleted++;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    size.set(queries.size() - deleted);
+  }
+
+  private List<Path> queries() {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static FileTime lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file);
+    } catch (IOException e) {
+      // deleted by another node
+      return FileTime.fromMillis(0);
+    }
+  }
+}
@@ -16,11 +16,14 @@
 
 package org.illyasviel.elide.spring.boot.graphql;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.hash.Hashing;
 import com.yahoo.elide.Elide;
 import com.yahoo.elide.ElideResponse;
 import com.yahoo.elide.ElideSettings;
@@ -38,15 +41,43 @@ import com.yahoo.elide.security.User;
 import graphql.ExecutionInput;
 import graphql.ExecutionResult;
 import graphql.GraphQL;
+import graphql.InvalidSyntaxError;
+import graphql.execution.preparsed.NoOpPreparsedDocumentProvider;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.language.Definition;
+import graphql.language.Document;
+import graphql.language.OperationDefinition;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.validation.ValidationError;
+import graphql.validation.Validator;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import javax.ws.rs.WebApplicationException;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.apache.commons.lang3.tuple.Pair;
+import org.illyasviel.elide.spring.boot.exception.ServiceUnavailableException;
+import org.illyasviel.elide.spring.boot.jsonapi.SpringElide;
+import org.illyasviel.elide.spring.boot.metrics.ElideMetrics;
+import org.illyasviel.elide.spring.boot.statistics.RequestStatisticsMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,19 +100,84 @@ public class GraphQLHandle {
   private Elide elide;
   private ElideSettings elideSettings;
   private GraphQL api;
+  private GraphQLSchema schema;
+  private PreparsedDocumentProvider preparsedDocumentProvider;
+  private PersistedQueryStore persistedQueryStore;
+  private ExecutorService batchExecutor;
+  private int batchConcurrency;
+  private ElideMetrics metrics;
+  private RequestStatisticsMonitor statisticsMonitor;
 
   private static final String QUERY = "query";
   private static final String OPERATION_NAME = "operationName";
   private static final String VARIABLES = "variables";
-  private static final String MUTATION = "mutation";
+  private static final String ANONYMOUS_OPERATION = "anonymous";
+  private static final String GRAPHQL = "graphql";
+  private static final String EXTENSIONS = "extensions";
+  private static final String PERSISTED_QUERY = "persistedQuery";
+  private static final String SHA256_HASH = "sha256Hash";
+  private static final int SC_METHOD_NOT_ALLOWED = 405;
+  private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+  private static final String BATCH_ERROR =
+      "{\"errors\":[{\"message\":\"Internal Server Error\"}]}";
 
   public GraphQLHandle(Elide elide) {
+    this(elide, NoOpPreparsedDocumentProvider.INSTANCE);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param elide elide
+   * @param preparsedDocumentProvider cache of parsed and validated documents
+   */
+  public GraphQLHandle(Elide elide, PreparsedDocumentProvider preparsedDocumentProvider) {
+    this(elide, preparsedDocumentProvider, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param elide elide
+   * @param preparsedDocumentProvider cache of parsed and validated documents
+   * @param persistedQueryStore store of automatic persisted queries, null to disable them
+   */
+  public GraphQLHandle(Elide elide, PreparsedDocumentProvider preparsedDocumentProvider,
+      PersistedQueryStore persistedQueryStore) {
+    this(elide, preparsedDocumentProvider, persistedQueryStore, null, 1);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param elide elide
+   * @param preparsedDocumentProvider cache of parsed and validated documents
+   * @param persistedQueryStore store of automatic persisted queries, null to disable them
+   * @param batchExecutor executor of batched queries, null to run them serially
+   * @param batchConcurrency maximum number of queries of one batch running concurrently
+   */
+  public GraphQLHandle(Elide elide, PreparsedDocumentProvider preparsedDocumentProvider,
+      PersistedQueryStore persistedQueryStore, ExecutorService batchExecutor,
+      int batchConcurrency) {
     log.info("Elide GraphQL Started ~~");
+    this.persistedQueryStore = persistedQueryStore;
+    this.batchExecutor = batchExecutor;
+    this.batchConcurrency = batchConcurrency;
+    this.metrics = elide instanceof SpringElide
+        ? ((SpringElide) elide).getMetrics()
+        : ElideMetrics.NOOP;
+    this.statisticsMonitor = elide instanceof SpringElide
+        ? ((SpringElide) elide).getStatisticsMonitor()
+        : null;
     this.elide = elide;
     this.elideSettings = elide.getElideSettings();
     PersistentResourceFetcher fetcher = new PersistentResourceFetcher(elide.getElideSettings());
     ModelBuilder builder = new ModelBuilder(elide.getElideSettings().getDictionary(), fetcher);
-    this.api = new GraphQL(builder.build());
+    this.schema = builder.build();
+    this.preparsedDocumentProvider = preparsedDocumentProvider;
+    this.api = GraphQL.newGraphQL(schema)
+        .preparsedDocumentProvider(preparsedDocumentProvider)
+        .build();
   }
 
   /**
@@ -92,6 +188,31 @@ public class GraphQLHandle {
    * @return response
    */
   public ElideResponse post(String graphQLDocument, Object opaqueUser) {
+    ByteArrayOutputStream batchOutput = new ByteArrayOutputStream();
+    ElideResponse response;
+    try {
+      response = post(graphQLDocument, opaqueUser, batchOutput);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (response != null) {
+      return response;
+    }
+    return new ElideResponse(HttpStatus.SC_OK,
+        new String(batchOutput.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Create handler, a batch (top-level array) is written to batchOutput as it is executed.
+   *
+   * @param graphQLDocument post data as jsonapi document
+   * @param opaqueUser opaqueUser
+   * @param batchOutput output of a batch, the responses are written as one UTF-8 json array
+   * @return response, or null if the document is a batch written to batchOutput
+   * @throws IOException if the batch can not be written
+   */
+  public ElideResponse post(String graphQLDocument, Object opaqueUser, OutputStream batchOutput)
+      throws IOException {
     ObjectMapper mapper = elide.getMapper().getObjectMapper();
 
     JsonNode topLevel;
@@ -105,57 +226,212 @@ public class GraphQLHandle {
       return buildErrorResponse(new InvalidEntityBodyException(graphQLDocument), false);
     }
 
-    Function<JsonNode, ElideResponse> executeRequest =
-        (node) -> executeGraphQLRequest(mapper, opaqueUser, graphQLDocument, node);
-
-    if (topLevel.isArray()) {
-      Iterator<JsonNode> nodeIterator = topLevel.iterator();
-      Iterable<JsonNode> nodeIterable = () -> nodeIterator;
-      // NOTE: Create a non-parallel stream
-      // It's unclear whether or not the expectations of the caller would be that requests are intended
-      // to run serially even outside of a single transaction. We should revisit this.
-      Stream<JsonNode> nodeStream = StreamSupport.stream(nodeIterable.spliterator(), false);
-      ArrayNode result = nodeStream
-          .map(executeRequest)
-          .map(response -> {
-            try {
-              return mapper.readTree(response.getBody());
-            } catch (IOException e) {
-              log.debug("Caught an IO exception while trying to read response body");
-              return JsonNodeFactory.instance.objectNode();
-            }
-          })
-          .reduce(JsonNodeFactory.instance.arrayNode(),
-              (arrayNode, node) -> arrayNode.add(node),
-              (left, right) -> left.addAll(right));
+    boolean isBatch = topLevel.isArray();
+    Function<JsonNode, ElideResponse> executeRequest = (node) ->
+        executeGraphQLRequest(mapper, opaqueUser, graphQLDocument, node, true, isBatch);
+
+    if (isBatch) {
+      List<JsonNode> nodes = new ArrayList<>(topLevel.size());
+      topLevel.forEach(nodes::add);
+      Function<JsonNode, ElideResponse> executeBatchRequest = (node) -> {
+        // NOTE: The status is sent before the first entry, an entry that fails is answered
+        // in the array like a GraphQL error so the following entries are still written.
+        try {
+          return executeRequest.apply(node);
+        } catch (RuntimeException e) {
+          log.error("Uncaught exception in a GraphQL batch", e);
+          return new ElideResponse(HttpStatus.SC_INTERNAL_SERVER_ERROR, BATCH_ERROR);
+        }
+      };
+      // NOTE: Requests run serially by default, each in its own transaction.
+      // Batches of queries may run concurrently when a batch executor is configured,
+      // a batch containing a mutation always runs serially since later entries may depend on it.
+      Stream<ElideResponse> responseStream;
       try {
-        return new ElideResponse(HttpStatus.SC_OK, mapper.writeValueAsString(result));
-      } catch (JsonProcessingException e) {
-        log.error("An unexpected error occurred trying to serialize array response.", e);
-        throw new RuntimeException(e);  // 500
+        responseStream =
+            batchExecutor != null && nodes.size() > 1 && nodes.stream().noneMatch(this::isMutation)
+                ? executeConcurrently(nodes, executeBatchRequest)
+                : nodes.stream().map(executeBatchRequest);
+      } catch (RejectedExecutionException e) {
+        log.debug("GraphQL batch executor is full, rejected batch.");
+        return buildErrorResponse(new ServiceUnavailableException("Server is busy"), false);
+      }
+      // NOTE: Each result is written as soon as it (and every result before it) is available,
+      // the specification of the ExecutionResult goes straight to the generator.
+      try (JsonGenerator generator = mapper.getFactory()
+          .createGenerator(batchOutput, JsonEncoding.UTF8)
+          .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+        generator.writeStartArray();
+        Iterator<ElideResponse> responses = responseStream.iterator();
+        while (responses.hasNext()) {
+          writeResponse(mapper, generator, responses.next());
+        }
+        generator.writeEndArray();
       }
+      return null;
     }
 
     return executeRequest.apply(topLevel);
   }
 
+  private static void writeResponse(ObjectMapper mapper, JsonGenerator generator,
+      ElideResponse response) throws IOException {
+    if (response instanceof SpecificationResponse) {
+      mapper.writeValue(generator, ((SpecificationResponse) response).getSpecification());
+      return;
+    }
+    // error responses are small and may not be json
+    JsonNode node;
+    try {
+      node = mapper.readTree(response.getBody());
+    } catch (IOException e) {
+      log.debug("Caught an IO exception while trying to read response body");
+      node = JsonNodeFactory.instance.objectNode();
+    }
+    generator.writeTree(node);
+  }
+
+  /**
+   * Release the batch executor.
+   */
+  public void shutdown() {
+    if (batchExecutor != null) {
+      batchExecutor.shutdown();
+    }
+  }
+
+  /**
+   * Run the requests on the batch executor, at most batchConcurrency at once.
+   * The responses keep the order of the requests.
+   *
+   * @throws RejectedExecutionException if the batch executor is full
+   */
+  private Stream<ElideResponse> executeConcurrently(List<JsonNode> nodes,
+      Function<JsonNode, ElideResponse> executeRequest) {
+    Semaphore permits = new Semaphore(batchConcurrency);
+    List<CompletableFuture<ElideResponse>> futures = new ArrayList<>(nodes.size());
+    try {
+      for (JsonNode node : nodes) {
+        permits.acquire();
+        futures.add(CompletableFuture.supplyAsync(() -> executeRequest.apply(node), batchExecutor)
+            .whenComplete((response, e) -> permits.release()));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      futures.forEach(future -> future.cancel(true));
+      throw new IllegalStateException("Interrupted while executing GraphQL batch", e);
+    } catch (RejectedExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      throw e;
+    }
+    return futures.stream().map(future -> {
+      try {
+        return future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        } else if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw e;
+      }
+    });
+  }
+
+  /**
+   * Read handler, the query is sent as parameters of the url.
+   * Mutations are rejected, so the response can be cached by HTTP caches.
+   *
+   * @param query query, may be omitted when a persisted query hash is sent
+   * @param operationName operationName
+   * @param variables variables as json
+   * @param extensions extensions as json
+   * @param opaqueUser opaqueUser
+   * @return response
+   */
+  public ElideResponse get(String query, String operationName, String variables,
+      String extensions, Object opaqueUser) {
+    ObjectMapper mapper = elide.getMapper().getObjectMapper();
+    ObjectNode jsonDocument = JsonNodeFactory.instance.objectNode();
+    jsonDocument.put(QUERY, query);
+    jsonDocument.put(OPERATION_NAME, operationName);
+    try {
+      jsonDocument.set(VARIABLES, variables == null ? null : mapper.readTree(variables));
+      jsonDocument.set(EXTENSIONS, extensions == null ? null : mapper.readTree(extensions));
+    } catch (IOException e) {
+      log.debug("Invalid json parameters provided to GraphQL", e);
+      return buildErrorResponse(new InvalidEntityBodyException(jsonDocument.toString()), false);
+    }
+    return executeGraphQLRequest(mapper, opaqueUser, jsonDocument.toString(), jsonDocument,
+        false, false);
+  }
+
   private ElideResponse executeGraphQLRequest(
       ObjectMapper mapper,
       Object opaqueUser,
       String graphQLDocument,
-      JsonNode jsonDocument) {
+      JsonNode jsonDocument,
+      boolean allowMutation,
+      boolean keepSpecification) {
+    long start = System.nanoTime();
+    String operationName = jsonDocument.hasNonNull(OPERATION_NAME)
+        ? jsonDocument.get(OPERATION_NAME).asText()
+        : ANONYMOUS_OPERATION;
+    String query;
+    try {
+      query = lookupQuery(mapper, jsonDocument);
+    } catch (GraphQLErrorException e) {
+      log.debug("GraphQLErrorException", e);
+      metrics.recordGraphQLRequest(operationName, false, e.getResponse().getResponseCode(),
+          null, System.nanoTime() - start);
+      return e.getResponse();
+    }
+    PreparsedDocumentEntry document = query == null ? null : document(query);
+    if (document != null && !document.hasErrors()) {
+      registerQuery(jsonDocument, query);
+    }
+    // The operation type is resolved once, it selects the transaction and tags the metrics.
+    boolean isMutation = document != null && isMutation(document, operationName(jsonDocument));
+    try {
+      Supplier<ElideResponse> request = () -> executeGraphQLRequestInTransaction(mapper,
+          opaqueUser, graphQLDocument, jsonDocument, query, isMutation, allowMutation,
+          keepSpecification);
+      ElideResponse response = statisticsMonitor == null
+          ? request.get() : statisticsMonitor.monitor(GRAPHQL, operationName, request);
+      metrics.recordGraphQLRequest(operationName, isMutation,
+          response.getResponseCode(), null, System.nanoTime() - start);
+      return response;
+    } catch (RuntimeException | Error e) {
+      metrics.recordGraphQLRequest(operationName, isMutation,
+          HttpStatus.SC_INTERNAL_SERVER_ERROR, e, System.nanoTime() - start);
+      throw e;
+    }
+  }
+
+  private ElideResponse executeGraphQLRequestInTransaction(
+      ObjectMapper mapper,
+      Object opaqueUser,
+      String graphQLDocument,
+      JsonNode jsonDocument,
+      String query,
+      boolean isMutation,
+      boolean allowMutation,
+      boolean keepSpecification) {
     boolean isVerbose = false;
-    try (DataStoreTransaction tx = elide.getDataStore().beginTransaction()) {
+    if (query == null) {
+      return new ElideResponse(HttpStatus.SC_BAD_REQUEST, "A `query` key is required.");
+    }
+    if (isMutation && !allowMutation) {
+      return new ElideResponse(SC_METHOD_NOT_ALLOWED,
+          "Mutations are only allowed with POST.");
+    }
+    try (DataStoreTransaction tx = isMutation
+        ? elide.getDataStore().beginTransaction()
+        : elide.getDataStore().beginReadTransaction()) {
       final User user = tx.accessUser(opaqueUser);
       GraphQLRequestScope requestScope = new GraphQLRequestScope(tx, user, elide.getElideSettings());
       isVerbose = requestScope.getPermissionExecutor().isVerbose();
 
-      if (!jsonDocument.has(QUERY)) {
-        return new ElideResponse(HttpStatus.SC_BAD_REQUEST, "A `query` key is required.");
-      }
-
-      String query = jsonDocument.get(QUERY).asText();
-
       // Logging all queries. It is recommended to put any private information that shouldn't be logged into
       // the "variables" section of your query. Variable values are not logged.
       log.info("Processing GraphQL query:\n{}", query);
@@ -164,8 +440,8 @@ public class GraphQLHandle {
           .context(requestScope)
           .query(query);
 
-      if (jsonDocument.has(OPERATION_NAME) && !jsonDocument.get(OPERATION_NAME).isNull()) {
-        executionInput.operationName(jsonDocument.get(OPERATION_NAME).asText());
+      if (operationName(jsonDocument) != null) {
+        executionInput.operationName(operationName(jsonDocument));
       }
 
       if (jsonDocument.has(VARIABLES) && !jsonDocument.get(VARIABLES).isNull()) {
@@ -178,7 +454,7 @@ public class GraphQLHandle {
       tx.preCommit();
       requestScope.runQueuedPreSecurityTriggers();
       requestScope.getPermissionExecutor().executeCommitChecks();
-      if (query.trim().startsWith(MUTATION)) {
+      if (isMutation) {
         if (!result.getErrors().isEmpty()) {
           HashMap<String, Object> abortedResponseObject = new HashMap<>();
           abortedResponseObject.put("errors", result.getErrors());
@@ -201,6 +477,9 @@ public class GraphQLHandle {
         requestScope.getPermissionExecutor().printCheckStats();
       }
 
+      if (keepSpecification) {
+        return new SpecificationResponse(HttpStatus.SC_OK, mapper, result.toSpecification());
+      }
       return new ElideResponse(HttpStatus.SC_OK, mapper.writeValueAsString(result.toSpecification()));
     } catch (WebApplicationException e) {
       log.debug("WebApplicationException", e);
@@ -252,6 +531,137 @@ public class GraphQLHandle {
     }
   }
 
+  /**
+   * Resolve the query of the request, following the automatic persisted queries protocol.
+   * <ul>
+   *   <li>hash only: lookup the registered query</li>
+   *   <li>hash and query: verify the hash, the query is registered once it validates</li>
+   * </ul>
+   *
+   * @return the query, or null if the request has neither a query nor a hash
+   */
+  private String lookupQuery(ObjectMapper mapper, JsonNode jsonDocument) {
+    String query = jsonDocument.hasNonNull(QUERY) ? jsonDocument.get(QUERY).asText() : null;
+    JsonNode hashNode = jsonDocument.path(EXTENSIONS).path(PERSISTED_QUERY).path(SHA256_HASH);
+    if (!hashNode.isTextual()) {
+      return query;
+    }
+    if (persistedQueryStore == null) {
+      throw persistedQueryError(mapper, HttpStatus.SC_OK,
+          "PersistedQueryNotSupported", "PERSISTED_QUERY_NOT_SUPPORTED");
+    }
+
+    String hash = hashNode.asText();
+    if (!SHA256_HEX.matcher(hash).matches()) {
+      throw persistedQueryError(mapper, HttpStatus.SC_BAD_REQUEST,
+          "Invalid persisted query hash", "BAD_REQUEST");
+    }
+    if (query == null) {
+      query = persistedQueryStore.get(hash);
+      if (query == null) {
+        throw persistedQueryError(mapper, HttpStatus.SC_OK,
+            "PersistedQueryNotFound", "PERSISTED_QUERY_NOT_FOUND");
+      }
+      return query;
+    }
+    if (!hash.equals(Hashing.sha256().hashString(query, StandardCharsets.UTF_8).toString())) {
+      throw persistedQueryError(mapper, HttpStatus.SC_BAD_REQUEST,
+          "provided sha does not match query", "BAD_REQUEST");
+    }
+    return query;
+  }
+
+  /**
+   * Register the query of a request sending both the query and its hash.
+   */
+  private void registerQuery(JsonNode jsonDocument, String query) {
+    JsonNode hashNode = jsonDocument.path(EXTENSIONS).path(PERSISTED_QUERY).path(SHA256_HASH);
+    if (persistedQueryStore != null && hashNode.isTextual() && jsonDocument.hasNonNull(QUERY)) {
+      persistedQueryStore.put(hashNode.asText(), query);
+    }
+  }
+
+  private static GraphQLErrorException persistedQueryError(ObjectMapper mapper, int status,
+      String message, String code) {
+    ObjectNode error = JsonNodeFactory.instance.objectNode().put("message", message);
+    error.putObject(EXTENSIONS).put("code", code);
+    ObjectNode body = JsonNodeFactory.instance.objectNode();
+    body.putArray("errors").add(error);
+    try {
+      return new GraphQLErrorException(status, mapper.writeValueAsString(body));
+    } catch (JsonProcessingException e) {
+      return new GraphQLErrorException(status, body.toString());
+    }
+  }
+
+  /**
+   * Whether the request is a mutation, an unknown persisted query is not.
+   */
+  private boolean isMutation(JsonNode jsonDocument) {
+    if (jsonDocument.hasNonNull(QUERY)) {
+      return isMutation(jsonDocument.get(QUERY).asText(), operationName(jsonDocument));
+    }
+    JsonNode hashNode = jsonDocument.path(EXTENSIONS).path(PERSISTED_QUERY).path(SHA256_HASH);
+    if (persistedQueryStore != null && hashNode.isTextual()
+        && SHA256_HEX.matcher(hashNode.asText()).matches()) {
+      String query = persistedQueryStore.get(hashNode.asText());
+      return query != null && isMutation(query, operationName(jsonDocument));
+    }
+    return false;
+  }
+
+  /**
+   * Whether the operation executed for operationName is a mutation. A document that does not
+   * parse or validate, or has no such operation, is not executed by graphql-java.
+   */
+  private boolean isMutation(String query, String operationName) {
+    return isMutation(document(query), operationName);
+  }
+
+  private boolean isMutation(PreparsedDocumentEntry entry, String operationName) {
+    if (entry.hasErrors()) {
+      return false;
+    }
+    List<OperationDefinition> operations = new ArrayList<>();
+    for (Definition definition : entry.getDocument().getDefinitions()) {
+      if (definition instanceof OperationDefinition && (operationName == null
+          || operationName.equals(((OperationDefinition) definition).getName()))) {
+        operations.add((OperationDefinition) definition);
+      }
+    }
+    return operations.size() == 1
+        && operations.get(0).getOperation() == OperationDefinition.Operation.MUTATION;
+  }
+
+  /**
+   * The document is parsed and validated through the document cache, where graphql-java
+   * finds it again.
+   */
+  private PreparsedDocumentEntry document(String query) {
+    return preparsedDocumentProvider.get(query, this::parseAndValidate);
+  }
+
+  /**
+   * As graphql-java parses and validates a document that is not cached.
+   */
+  private PreparsedDocumentEntry parseAndValidate(String query) {
+    Document document;
+    try {
+      document = new Parser().parseDocument(query);
+    } catch (ParseCancellationException e) {
+      return new PreparsedDocumentEntry(InvalidSyntaxError.toInvalidSyntaxError(e));
+    }
+    List<ValidationError> errors = new Validator().validateDocument(schema, document);
+    return errors.isEmpty()
+        ? new PreparsedDocumentEntry(document)
+        : new PreparsedDocumentEntry(errors);
+  }
+
+  private static String operationName(JsonNode jsonDocument) {
+    return jsonDocument.hasNonNull(OPERATION_NAME)
+        ? jsonDocument.get(OPERATION_NAME).asText() : null;
+  }
+
   private ElideResponse buildErrorResponse(HttpStatusException error, boolean isVerbose) {
     ObjectMapper mapper = elide.getMapper().getObjectMapper();
     JsonNode errorNode;
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.graphql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * In-memory LRU {@link PersistedQueryStore}.
+ * @author olOwOlo
+ */
+public class InMemoryPersistedQueryStore implements PersistedQueryStore {
+
+  private final Cache<String, String> cache;
+
+  /**
+   * Constructor.
+   *
+   * @param maximumSize Maximum number of persisted queries
+   */
+  public InMemoryPersistedQueryStore(long maximumSize) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .build();
+  }
+
+  @Override
+  public String get(String hash) {
+    return cache.getIfPresent(hash);
+  }
+
+  @Override
+  public void put(String hash, String query) {
+    cache.put(hash, query);
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.graphql;
+
+/**
+ * Store of automatic persisted queries, keyed by the SHA-256 hash of the query.
+ * @author olOwOlo
+ */
+public interface PersistedQueryStore {
+
+  /**
+   * Lookup a query.
+   *
+   * @param hash Lowercase hex SHA-256 of the query
+   * @return the query, or null if it is not registered
+   */
+  String get(String hash);
+
+  /**
+   * Register a query, the hash has been verified by the caller.
+   *
+   * @param hash Lowercase hex SHA-256 of the query
+   * @param query GraphQL query
+   */
+  void put(String hash, String query);
+}
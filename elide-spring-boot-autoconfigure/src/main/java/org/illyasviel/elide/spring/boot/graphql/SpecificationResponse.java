@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.graphql;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.elide.ElideResponse;
+import java.util.Map;
+import lombok.Getter;
+
+/**
+ * Response keeping the specification of an ExecutionResult,
+ * the body is only serialized when it is asked for.
+ *
+ * @author olOwOlo
+ */
+class SpecificationResponse extends ElideResponse {
+
+  private final ObjectMapper mapper;
+
+  @Getter
+  private final Map<String, Object> specification;
+
+  private String body;
+
+  SpecificationResponse(int status, ObjectMapper mapper, Map<String, Object> specification) {
+    super(status, null);
+    this.mapper = mapper;
+    this.specification = specification;
+  }
+
+  @Override
+  public String getBody() {
+    if (body == null) {
+      try {
+        body = mapper.writeValueAsString(specification);
+      } catch (JsonProcessingException e) {
+        throw new IllegalStateException("Unable to serialize GraphQL result", e);
+      }
+    }
+    return body;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.invalidation;
+
+import java.util.Map;
+import java.util.Set;
+import org.illyasviel.elide.spring.boot.datastore.EntityChangeListener;
+
+/**
+ * Carries the entity changes committed on one node to the caches of every node.
+ * A message holds the changes of one commit: ids by json api type.
+ *
+ * @author olOwOlo
+ */
+public interface ElideCacheInvalidationBus {
+
+  /**
+   * Publish the changes of a commit, delivered to the subscribers of every node including
+   * this one.
+   *
+   * @param changes ids of the changed entities by json api type
+   */
+  void publish(Map<String, Set<String>> changes);
+
+  /**
+   * Receive the changes published by any node.
+   */
+  void subscribe(EntityChangeListener subscriber);
+
+  default void close() {
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.invalidation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.illyasviel.elide.spring.boot.datastore.EntityChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Invalidation bus of a single node, the changes are delivered on the publishing thread.
+ *
+ * @author olOwOlo
+ */
+public class InMemoryCacheInvalidationBus implements ElideCacheInvalidationBus {
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(InMemoryCacheInvalidationBus.class);
+
+  private final List<EntityChangeListener> subscribers = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void publish(Map<String, Set<String>> changes) {
+    deliver(changes);
+  }
+
+  @Override
+  public void subscribe(EntityChangeListener subscriber) {
+    subscribers.add(subscriber);
+  }
+
+  /**
+   * Deliver changes to the subscribers of this node.
+   */
+  protected void deliver(Map<String, Set<String>> changes) {
+    for (EntityChangeListener subscriber : subscribers) {
+      try {
+        subscriber.afterCommit(changes);
+      } catch (RuntimeException e) {
+        logger.warn("Cache invalidation subscriber failed.", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.invalidation;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Invalidation bus sending the changes as json lines to the other nodes over TCP.
+ * The changes published while a message is being sent are coalesced into the next message,
+ * beyond {@link #MAX_PENDING_IDS} ids only the types are kept, i.e. every entity of the types
+ * changed. A node that can not be reached, or does not read a message within the write timeout,
+ * misses the changes and is reconnected; its caches rely on their time to live.
+ * The messages are not authenticated, listen on a private network only.
+ *
+ * @author olOwOlo
+ */
+public class TcpCacheInvalidationBus extends InMemoryCacheInvalidationBus {
+
+  private static final Logger logger = LoggerFactory.getLogger(TcpCacheInvalidationBus.class);
+
+  private static final TypeReference<Map<String, Set<String>>> CHANGES =
+      new TypeReference<Map<String, Set<String>>>() {
+      };
+  private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+  static final int MAX_PENDING_IDS = 10000;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final ServerSocket serverSocket;
+  private final List<InetSocketAddress> peers;
+  private final ExecutorService sender;
+  private final ExecutorService receivers;
+  /**
+   * Closes the connection of a write that does not complete in time.
+   */
+  private final ScheduledExecutorService watchdog;
+  private final long writeTimeoutMillis;
+  private final Set<Socket> accepted = ConcurrentHashMap.newKeySet();
+  /**
+   * Connections to the peers, used by the sender thread only.
+   */
+  private final Map<InetSocketAddress, Socket> connections = new HashMap<>();
+  private Map<String, Set<String>> pending;
+  private int pendingIds;
+  private volatile boolean closed;
+
+  /**
+   * Constructor, starts listening.
+   *
+   * @param address address to listen on, port 0 for any free port
+   * @param peers addresses of the other nodes
+   * @throws IOException if the address can not be bound
+   */
+  public TcpCacheInvalidationBus(InetSocketAddress address, List<InetSocketAddress> peers)
+      throws IOException {
+    this(address, peers, Duration.ofSeconds(5));
+  }
+
+  /**
+   * Constructor, starts listening.
+   *
+   * @param address address to listen on, port 0 for any free port
+   * @param peers addresses of the other nodes
+   * @param writeTimeout the connection to a peer not reading a message within it is dropped
+   * @throws IOException if the address can not be bound
+   */
+  public TcpCacheInvalidationBus(InetSocketAddress address, List<InetSocketAddress> peers,
+      Duration writeTimeout) throws IOException {
+    this.peers = new ArrayList<>(peers);
+    this.writeTimeoutMillis = writeTimeout.toMillis();
+    this.serverSocket = new ServerSocket();
+    serverSocket.bind(address);
+    CustomizableThreadFactory threadFactory =
+        new CustomizableThreadFactory("elide-cache-invalidation-");
+    threadFactory.setDaemon(true);
+    this.sender = Executors.newSingleThreadExecutor(threadFactory);
+    this.receivers = Executors.newCachedThreadPool(threadFactory);
+    this.watchdog = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    receivers.execute(this::accept);
+  }
+
+  public int getLocalPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  @Override
+  public void publish(Map<String, Set<String>> changes) {
+    deliver(changes);
+    if (peers.isEmpty() || closed) {
+      return;
+    }
+    boolean schedule;
+    synchronized (this) {
+      schedule = pending == null;
+      if (schedule) {
+        pending = new HashMap<>();
+        pendingIds = 0;
+      }
+      for (Map.Entry<String, Set<String>> change : changes.entrySet()) {
+        Set<String> ids = pending.computeIfAbsent(change.getKey(), key -> new HashSet<>());
+        if (pendingIds <= MAX_PENDING_IDS) {
+          int size = ids.size();
+          ids.addAll(change.getValue());
+          pendingIds += ids.size() - size;
+        }
+      }
+      if (pendingIds > MAX_PENDING_IDS) {
+        pending.values().forEach(Set::clear);
+      }
+    }
+    if (schedule) {
+      sender.execute(this::send);
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    closeQuietly(serverSocket);
+    accepted.forEach(TcpCacheInvalidationBus::closeQuietly);
+    sender.execute(() -> connections.values().forEach(TcpCacheInvalidationBus::closeQuietly));
+    sender.shutdown();
+    receivers.shutdownNow();
+    watchdog.shutdownNow();
+  }
+
+  private void send() {
+    Map<String, Set<String>> changes;
+    synchronized (this) {
+      changes = pending;
+      pending = null;
+    }
+    byte[] message;
+    try {
+      message = (mapper.writeValueAsString(changes) + "\n").getBytes(StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      logger.warn("Unable to serialize cache invalidations.", e);
+      return;
+    }
+    for (InetSocketAddress peer : peers) {
+      write(peer, message);
+    }
+  }
+
+  private void write(InetSocketAddress peer, byte[] message) {
+    // a kept connection may have been closed by the peer, reconnect once
+    for (int attempt = 1; attempt <= 2; attempt++) {
+      try {
+        Socket socket = connections.get(peer);
+        if (socket == null) {
+          socket = new Socket();
+          connections.put(peer, socket);
+          socket.connect(peer, CONNECT_TIMEOUT_MILLIS);
+        }
+        Socket connection = socket;
+        ScheduledFuture<?> timeout = watchdog.schedule(() -> closeQuietly(connection),
+            writeTimeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+          OutputStream output = socket.getOutputStream();
+          output.write(message);
+          output.flush();
+        } finally {
+          timeout.cancel(false);
+        }
+        return;
+      } catch (IOException e) {
+        closeQuietly(connections.remove(peer));
+        if (attempt == 2) {
+          logger.warn("Unable to send cache invalidations to {}.", peer, e);
+        }
+      }
+    }
+  }
+
+  private void accept() {
+    while (!closed) {
+      try {
+        Socket socket = serverSocket.accept();
+        accepted.add(socket);
+        receivers.execute(() -> receive(socket));
+      } catch (IOException e) {
+        if (!closed) {
+          logger.warn("Unable to accept a cache invalidation connection.", e);
+        }
+      }
+    }
+  }
+
+  private void receive(Socket socket) {
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        deliver(mapper.readValue(line, CHANGES));
+      }
+    } catch (IOException e) {
+      if (!closed) {
+        logger.debug("Cache invalidation connection closed.", e);
+      }
+    } finally {
+      accepted.remove(socket);
+      closeQuietly(socket);
+    }
+  }
+
+  private static void closeQuietly(AutoCloseable closeable) {
+    if (closeable == null) {
+      return;
+    }
+    try {
+      closeable.close();
+    } catch (Exception e) {
+      logger.debug("Unable to close.", e);
+    }
+  }
+}
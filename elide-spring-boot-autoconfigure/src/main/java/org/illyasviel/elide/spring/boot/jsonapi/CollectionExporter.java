@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.jsonapi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.elide.Elide;
+import com.yahoo.elide.ElideSettings;
+import com.yahoo.elide.annotation.ReadPermission;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.HttpStatus;
+import com.yahoo.elide.core.PersistentResource;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.exceptions.ForbiddenAccessException;
+import com.yahoo.elide.core.exceptions.HttpStatusException;
+import com.yahoo.elide.core.exceptions.InvalidCollectionException;
+import com.yahoo.elide.core.sort.Sorting;
+import com.yahoo.elide.jsonapi.models.Resource;
+import com.yahoo.elide.security.PermissionExecutor;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletResponse;
+import org.illyasviel.elide.spring.boot.datastore.SpringHibernateTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Export of a whole root collection as newline delimited JSON-API resource objects or CSV.
+ * The resources are filtered and sorted like a GET of the collection and checked for read
+ * permission, then written from a forward-only cursor as they are read. Every chunk of rows
+ * gets a new request scope and the session is cleared, so neither grows with the export.
+ *
+ * @author olOwOlo
+ */
+public class CollectionExporter {
+
+  private static final Logger logger = LoggerFactory.getLogger(CollectionExporter.class);
+
+  private static final String JSON_API_CONTENT_TYPE = "application/vnd.api+json";
+
+  private final Elide elide;
+  private final EntityManager entityManager;
+  private final int chunkSize;
+  private final int fetchSize;
+
+  /**
+   * Constructor.
+   *
+   * @param elide elide
+   * @param entityManager shared entity manager, cleared after each chunk
+   * @param chunkSize number of rows between two clears of the session
+   * @param fetchSize JDBC fetch size of the cursor, 0 for the driver default
+   */
+  public CollectionExporter(Elide elide, EntityManager entityManager, int chunkSize,
+      int fetchSize) {
+    this.elide = elide;
+    this.entityManager = entityManager;
+    this.chunkSize = chunkSize;
+    this.fetchSize = fetchSize;
+  }
+
+  public enum Format {
+    NDJSON("application/x-ndjson;charset=UTF-8"), CSV("text/csv;charset=UTF-8");
+
+    private final String contentType;
+
+    Format(String contentType) {
+      this.contentType = contentType;
+    }
+  }
+
+  /**
+   * Write the resources of the collection to the response. Pagination and include are
+   * ignored, fields[type] selects the attributes. An error raised before the response is
+   * committed is answered with the JSON-API errors, the response is aborted otherwise.
+   *
+   * @param type json api type of the root collection
+   * @param parameters query parameters
+   * @param opaqueUser user
+   * @param format format of the rows
+   * @param response response
+   */
+  public void exportResources(String type, Map<String, String[]> parameters, Object opaqueUser,
+      Format format, HttpServletResponse response) throws IOException {
+    ElideSettings settings = elide.getElideSettings();
+    EntityDictionary dictionary = settings.getDictionary();
+    ServletParameterMap queryParams = new ServletParameterMap(queryParameters(parameters));
+    long exported = 0;
+    try (DataStoreTransaction tx = settings.getDataStore().beginReadTransaction()) {
+      Class<?> entityClass = dictionary.getEntityClass(type);
+      if (entityClass == null || !dictionary.isRoot(entityClass)) {
+        throw new InvalidCollectionException(type);
+      }
+      RequestScope requestScope = new RequestScope(type, null, tx, tx.accessUser(opaqueUser),
+          queryParams, settings, false);
+      List<String> fields = fields(entityClass, type, requestScope.getSparseFields(), dictionary);
+      Iterator<Object> rows = canRead(entityClass, requestScope)
+          ? scroll(entityClass, requestScope, (SpringHibernateTransaction) tx)
+          : Collections.emptyIterator();
+      // The query runs before the response is started.
+      rows.hasNext();
+
+      response.setStatus(HttpStatus.SC_OK);
+      response.setContentType(format.contentType);
+      Writer writer = new BufferedWriter(
+          new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+      if (format == Format.CSV) {
+        List<Object> header = new ArrayList<>();
+        header.add("id");
+        header.addAll(fields);
+        writeCsvRow(writer, header, settings.getMapper().getObjectMapper());
+      }
+      while (rows.hasNext()) {
+        PersistentResource<?> resource = new PersistentResource<>(rows.next(), null, null,
+            requestScope);
+        if (!canRead(resource, requestScope)) {
+          continue;
+        }
+        writeResource(writer, resource, fields, format, settings.getMapper().getObjectMapper());
+        if (++exported % chunkSize == 0) {
+          completeChunk(requestScope);
+          writer.flush();
+          entityManager.clear();
+          requestScope = new RequestScope(type, null, tx, requestScope.getUser(), queryParams,
+              settings, false);
+        }
+      }
+      completeChunk(requestScope);
+      tx.commit(requestScope);
+      writer.flush();
+    } catch (HttpStatusException e) {
+      if (response.isCommitted()) {
+        logger.warn("Export of [{}] failed after {} resources.", type, exported);
+        throw e;
+      }
+      response.reset();
+      response.setStatus(e.getStatus());
+      response.setContentType(JSON_API_CONTENT_TYPE);
+      settings.getMapper().getObjectMapper()
+          .writeValue(response.getOutputStream(), e.getErrorResponse().getRight());
+    } catch (RuntimeException e) {
+      logger.warn("Export of [{}] failed after {} resources.", type, exported);
+      throw e;
+    }
+  }
+
+  private Iterator<Object> scroll(Class<?> entityClass, RequestScope requestScope,
+      SpringHibernateTransaction tx) {
+    Sorting sorting = requestScope.getSorting();
+    return tx.scrollObjects(entityClass, requestScope.getLoadFilterExpression(entityClass),
+        sorting == null || sorting.isDefaultInstance() ? Optional.empty() : Optional.of(sorting),
+        requestScope.getDictionary(), fetchSize);
+  }
+
+  /**
+   * The read hooks of a chunk run once it is written, the transaction only reads.
+   */
+  private static void completeChunk(RequestScope requestScope) {
+    requestScope.runQueuedPreSecurityTriggers();
+    requestScope.getPermissionExecutor().executeCommitChecks();
+    requestScope.runQueuedPreCommitTriggers();
+    requestScope.runQueuedPostCommitTriggers();
+  }
+
+  private static boolean canRead(Class<?> entityClass, RequestScope requestScope) {
+    try {
+      requestScope.getPermissionExecutor().checkUserPermissions(entityClass, ReadPermission.class);
+      return true;
+    } catch (ForbiddenAccessException e) {
+      return false;
+    }
+  }
+
+  private static boolean canRead(PersistentResource<?> resource, RequestScope requestScope) {
+    try {
+      requestScope.getPermissionExecutor().checkPermission(ReadPermission.class, resource);
+      return true;
+    } catch (ForbiddenAccessException e) {
+      return false;
+    }
+  }
+
+  /**
+   * The attributes of the type, or those of fields[type].
+   */
+  private static List<String> fields(Class<?> entityClass, String type,
+      Map<String, Set<String>> sparseFields, EntityDictionary dictionary) {
+    List<String> fields = new ArrayList<>();
+    for (String attribute : dictionary.getAttributes(entityClass)) {
+      if (sparseFields.isEmpty() || sparseFields.getOrDefault(type, Collections.emptySet())
+          .contains(attribute)) {
+        fields.add(attribute);
+      }
+    }
+    return fields;
+  }
+
+  private static void writeResource(Writer writer, PersistentResource<?> resource,
+      List<String> fields, Format format, ObjectMapper objectMapper) throws IOException {
+    PermissionExecutor permissionExecutor = resource.getRequestScope().getPermissionExecutor();
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    for (String field : fields) {
+      try {
+        permissionExecutor.checkSpecificFieldPermissions(resource, null, ReadPermission.class,
+            field);
+        attributes.put(field, resource.getAttribute(field));
+      } catch (ForbiddenAccessException e) {
+        // Left out like in a GET.
+      }
+    }
+    if (format == Format.NDJSON) {
+      Resource line = new Resource(resource.getType(), resource.getId());
+      line.setAttributes(attributes);
+      writer.write(objectMapper.writeValueAsString(line));
+      writer.write('\n');
+      return;
+    }
+    List<Object> row = new ArrayList<>();
+    row.add(resource.getId());
+    for (String field : fields) {
+      row.add(attributes.get(field));
+    }
+    writeCsvRow(writer, row, objectMapper);
+  }
+
+  /**
+   * RFC 4180, a value that is not a string, number or boolean is written as JSON.
+   */
+  private static void writeCsvRow(Writer writer, List<Object> values, ObjectMapper objectMapper)
+      throws IOException {
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      Object value = values.get(i);
+      if (value == null) {
+        continue;
+      }
+      JsonNode node = objectMapper.valueToTree(value);
+      String text = node.isValueNode() ? node.asText() : node.toString();
+      if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0
+          || text.indexOf('\r') >= 0) {
+        text = '"' + text.replace("\"", "\"\"") + '"';
+      }
+      writer.write(text);
+    }
+    writer.write("\r\n");
+  }
+
+  /**
+   * The query parameters of a collection GET, without pagination and include.
+   */
+  private static Map<String, String[]> queryParameters(Map<String, String[]> parameters) {
+    Map<String, String[]> queryParameters = new HashMap<>();
+    parameters.forEach((name, values) -> {
+      if (!name.startsWith("page[") && !"include".equals(name)) {
+        queryParameters.put(name, values);
+      }
+    });
+    return queryParameters;
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.jsonapi;
+
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Validators and Cache-Control of the JSON-API GET responses.
+ * The ETag is a hash of the document, a matching If-None-Match is answered with 304 by
+ * Spring MVC when the entity is returned from a controller.
+ *
+ * @author olOwOlo
+ */
+public class JsonApiHttpCache {
+
+  private final String cacheControl;
+  private final Map<String, String> modelCacheControl;
+
+  /**
+   * Constructor.
+   *
+   * @param cacheControl Cache-Control of all the models, none if empty
+   * @param modelCacheControl Cache-Control by json api type of the root collection
+   */
+  public JsonApiHttpCache(String cacheControl, Map<String, String> modelCacheControl) {
+    this.cacheControl = cacheControl;
+    this.modelCacheControl = modelCacheControl;
+  }
+
+  /**
+   * The document of a successful response with its ETag and Cache-Control.
+   *
+   * @param builder builder of the entity, status and content type are set
+   * @param path path without prefix
+   * @param response response
+   */
+  public ResponseEntity<Object> toResponseEntity(ResponseEntity.BodyBuilder builder, String path,
+      JsonApiResponse response) {
+    byte[] body = response.toBytes();
+    String value = modelCacheControl
+        .getOrDefault(JsonApiPathMatcher.rootType(path), cacheControl);
+    if (StringUtils.hasText(value)) {
+      builder.header(HttpHeaders.CACHE_CONTROL, value);
+    }
+    return builder.eTag("\"" + DigestUtils.md5DigestAsHex(body) + "\"").body(body);
+  }
+}
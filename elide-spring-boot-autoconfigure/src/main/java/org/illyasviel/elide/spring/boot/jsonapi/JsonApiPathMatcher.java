@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.jsonapi;
+
+/**
+ * Strips the Elide prefix from request paths, built once from the prefix.
+ * The prefix is compared as plain text, with path segment boundaries.
+ *
+ * @author olOwOlo
+ */
+public final class JsonApiPathMatcher {
+
+  private final String prefix;
+
+  /**
+   * Constructor.
+   *
+   * @param prefix prefix of the Elide controllers, e.g. /api
+   */
+  public JsonApiPathMatcher(String prefix) {
+    String normalized = prefix == null ? "" : prefix.trim();
+    if (normalized.endsWith("/")) {
+      normalized = normalized.substring(0, normalized.length() - 1);
+    }
+    if (!normalized.isEmpty() && normalized.charAt(0) != '/') {
+      normalized = "/" + normalized;
+    }
+    this.prefix = normalized;
+  }
+
+  /**
+   * The normalized prefix, empty or starting with a slash.
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * The path without the prefix, the path itself if it does not start with the prefix.
+   */
+  public String strip(String path) {
+    int length = prefix.length();
+    if (length == 0 || !path.startsWith(prefix)) {
+      return path;
+    }
+    if (path.length() == length) {
+      return "";
+    }
+    return path.charAt(length) == '/' ? path.substring(length) : path;
+  }
+
+  /**
+   * Json api type of the root collection of a path without prefix, e.g. book for /book/1/author.
+   */
+  public static String rootType(String path) {
+    int start = path.startsWith("/") ? 1 : 0;
+    int end = path.indexOf('/', start);
+    return end < 0 ? path.substring(start) : path.substring(start, end);
+  }
+
+  /**
+   * Path without its leading and trailing slash, e.g. book for /book/.
+   */
+  public static String normalize(String path) {
+    String normalized = path.startsWith("/") ? path.substring(1) : path;
+    return normalized.endsWith("/")
+        ? normalized.substring(0, normalized.length() - 1) : normalized;
+  }
+}
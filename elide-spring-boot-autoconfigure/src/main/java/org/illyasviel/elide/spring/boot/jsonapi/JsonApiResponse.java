@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.jsonapi;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.jsonapi.JsonApiMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import lombok.Getter;
+
+/**
+ * Response keeping the json api document, so it can be written straight to the output
+ * instead of being serialized to a String first. The body is only serialized when it is
+ * asked for.
+ *
+ * @author olOwOlo
+ */
+public class JsonApiResponse extends ElideResponse {
+
+  @Getter
+  private final JsonNode document;
+  private final JsonApiMapper mapper;
+  private String body;
+
+  /**
+   * Constructor.
+   *
+   * @param responseCode http status
+   * @param document json api document, may be null
+   * @param mapper mapper used to write the document
+   */
+  public JsonApiResponse(int responseCode, JsonNode document, JsonApiMapper mapper) {
+    super(responseCode, null);
+    this.document = document;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public String getBody() {
+    if (body == null && document != null) {
+      try {
+        body = mapper.writeJsonApiDocument(document);
+      } catch (JsonProcessingException e) {
+        throw new IllegalStateException("Unable to serialize json api document", e);
+      }
+    }
+    return body;
+  }
+
+  /**
+   * The document as UTF-8 json.
+   */
+  public byte[] toBytes() {
+    if (document == null) {
+      return new byte[0];
+    }
+    try {
+      return mapper.getObjectMapper().writeValueAsBytes(document);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to serialize json api document", e);
+    }
+  }
+
+  /**
+   * Write the document as UTF-8 json, the output is not closed.
+   *
+   * @param output output
+   * @throws IOException if the document can not be written
+   */
+  public void writeTo(OutputStream output) throws IOException {
+    if (document != null) {
+      mapper.getObjectMapper().writer()
+          .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+          .writeValue(output, document);
+    }
+  }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.jsonapi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.ElideSettings;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.HttpStatus;
+import com.yahoo.elide.core.Path;
+import com.yahoo.elide.core.exceptions.HttpStatusException;
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.filter.dialect.MultipleFilterDialect;
+import com.yahoo.elide.core.filter.dialect.ParseException;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.filter.expression.PredicateExtractionVisitor;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.illyasviel.elide.spring.boot.datastore.EntityChangeListener;
+
+/**
+ * Cache of the successful JSON-API GET responses, keyed by path, query parameters and user.
+ * An entry is dropped when a transaction writing one of the types it depends on commits:
+ * the types along the path, the includes and the filters, of their relationships and of the
+ * resources in the document.
+ * Writes that do not go through Elide are only caught up by the time to live.
+ *
+ * @author olOwOlo
+ */
+public class JsonApiResponseCache implements EntityChangeListener {
+
+  private final Cache<String, CachedResponse> cache;
+  private final Set<String> models;
+  /**
+   * Incremented by every invalidation, a response loaded meanwhile may be stale.
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param maximumSize maximum number of cached responses
+   * @param timeToLive time to live of a cached response
+   * @param models json api types of the cached root collections, all if empty
+   */
+  public JsonApiResponseCache(long maximumSize, Duration timeToLive, Collection<String> models) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+        .build();
+    this.models = new HashSet<>(models);
+  }
+
+  /**
+   * The cached response of the request, else the loaded one, cached if successful.
+   *
+   * @param path path without prefix
+   * @param queryParams query parameters
+   * @param opaqueUser user
+   * @param settings settings of elide, with the dictionary and the filter dialects
+   * @param loader executes the request
+   */
+  public ElideResponse get(String path, MultivaluedMap<String, String> queryParams,
+      Object opaqueUser, ElideSettings settings, Supplier<ElideResponse> loader) {
+    EntityDictionary dictionary = settings.getDictionary();
+    String rootType = JsonApiPathMatcher.rootType(path);
+    if (dictionary.getEntityClass(rootType) == null
+        || (!models.isEmpty() && !models.contains(rootType))) {
+      return loader.get();
+    }
+    String key = key(path, queryParams, opaqueUser);
+    CachedResponse cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached.response;
+    }
+    long loadGeneration = generation.get();
+    ElideResponse response = loader.get();
+    if (response instanceof JsonApiResponse && response.getResponseCode() == HttpStatus.SC_OK
+        && ((JsonApiResponse) response).getDocument() != null) {
+      Set<String> dependencies = dependencies(path, queryParams, (JsonApiResponse) response,
+          settings);
+      if (dependencies != null && generation.get() == loadGeneration) {
+        cache.put(key, new CachedResponse((JsonApiResponse) response, dependencies));
+      }
+    }
+    return response;
+  }
+
+  @Override
+  public void afterCommit(Map<String, Set<String>> changes) {
+    invalidate(changes.keySet());
+  }
+
+  /**
+   * Drop the responses depending on one of the types.
+   */
+  public void invalidate(Set<String> types) {
+    generation.incrementAndGet();
+    cache.asMap().values()
+        .removeIf(entry -> !Collections.disjoint(entry.dependencies, types));
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * Part of the key identifying the user, responses depend on its permissions.
+   * Override to share the entries of the users having the same permissions.
+   */
+  protected String userKey(Object opaqueUser) {
+    if (opaqueUser instanceof Principal) {
+      return ((Principal) opaqueUser).getName();
+    }
+    return opaqueUser == null ? "" : opaqueUser.toString();
+  }
+
+  private String key(String path, MultivaluedMap<String, String> queryParams, Object opaqueUser) {
+    StringBuilder key = new StringBuilder(path).append('?');
+    if (queryParams != null) {
+      // the order of the parameters does not matter, the order of repeated values does
+      for (Map.Entry<String, List<String>> param : new TreeMap<>(queryParams).entrySet()) {
+        for (String value : param.getValue()) {
+          key.append(param.getKey()).append('=').append(value).append('&');
+        }
+      }
+    }
+    return key.append('#').append(userKey(opaqueUser)).toString();
+  }
+
+  /**
+   * The types read by the request, null if they are unknown.
+   */
+  private static Set<String> dependencies(String path, MultivaluedMap<String, String> queryParams,
+      JsonApiResponse response, ElideSettings settings) {
+    EntityDictionary dictionary = settings.getDictionary();
+    Set<String> types = new HashSet<>();
+    String[] segments = JsonApiPathMatcher.normalize(path).split("/");
+    Class<?> entityClass = dictionary.getEntityClass(segments[0]);
+    addType(entityClass, types, dictionary);
+    // book/1/authors/2/relationships/books
+    for (int i = 2; i < segments.length && entityClass != null; i += 2) {
+      if ("relationships".equals(segments[i]) && i + 1 < segments.length) {
+        i++;
+      }
+      entityClass = relationshipType(entityClass, segments[i], dictionary);
+      addType(entityClass, types, dictionary);
+    }
+    if (queryParams != null) {
+      Class<?> rootClass = dictionary.getEntityClass(segments[0]);
+      for (String include : queryParams.getOrDefault("include", Collections.emptyList())) {
+        for (String includePath : include.split(",")) {
+          Class<?> includeClass = rootClass;
+          for (String relationship : includePath.split("\\.")) {
+            includeClass = relationshipType(includeClass, relationship, dictionary);
+            addType(includeClass, types, dictionary);
+          }
+        }
+      }
+      if (!addFilterTypes(path, queryParams, types, settings)) {
+        return null;
+      }
+    }
+    addTypes(response.getDocument().get("data"), types);
+    addTypes(response.getDocument().get("included"), types);
+    return types;
+  }
+
+  /**
+   * The type and the types of its relationships, the linkage of a resource depends on them.
+   */
+  private static void addType(Class<?> entityClass, Set<String> types,
+      EntityDictionary dictionary) {
+    if (entityClass == null) {
+      return;
+    }
+    types.add(dictionary.getJsonAliasFor(entityClass));
+    for (String relationship : dictionary.getRelationships(entityClass)) {
+      types.add(dictionary.getJsonAliasFor(
+          dictionary.getParameterizedType(entityClass, relationship)));
+    }
+  }
+
+  private static Class<?> relationshipType(Class<?> entityClass, String relationship,
+      EntityDictionary dictionary) {
+    if (entityClass == null || !dictionary.getRelationships(entityClass).contains(relationship)) {
+      return null;
+    }
+    return dictionary.getParameterizedType(entityClass, relationship);
+  }
+
+  /**
+   * The types along the paths of the filters, parsed the way the request scope does.
+   * False if no dialect parses the filters.
+   */
+  private static boolean addFilterTypes(String path, MultivaluedMap<String, String> queryParams,
+      Set<String> types, ElideSettings settings) {
+    MultivaluedMap<String, String> filterParams = new MultivaluedHashMap<>();
+    queryParams.forEach((name, values) -> {
+      if (name.startsWith("filter")) {
+        filterParams.put(name, values);
+      }
+    });
+    if (filterParams.isEmpty()) {
+      return true;
+    }
+    MultipleFilterDialect dialect = new MultipleFilterDialect(settings.getJoinFilterDialects(),
+        settings.getSubqueryFilterDialects());
+    List<FilterExpression> expressions = new ArrayList<>();
+    try {
+      expressions.add(dialect.parseGlobalExpression(path, filterParams));
+    } catch (ParseException | HttpStatusException e) {
+      // typed filters
+    }
+    try {
+      expressions.addAll(dialect.parseTypedExpression(path, filterParams).values());
+    } catch (ParseException | HttpStatusException e) {
+      // a global filter
+    }
+    if (expressions.isEmpty()) {
+      return false;
+    }
+    EntityDictionary dictionary = settings.getDictionary();
+    for (FilterExpression expression : expressions) {
+      for (FilterPredicate predicate : expression.accept(new PredicateExtractionVisitor())) {
+        for (Path.PathElement element : predicate.getPath().getPathElements()) {
+          types.add(dictionary.getJsonAliasFor(element.getType()));
+        }
+      }
+    }
+    return true;
+  }
+
+  private static void addTypes(JsonNode resources, Set<String> types) {
+    if (resources == null) {
+      return;
+    }
+    if (resources.isArray()) {
+      resources.forEach(resource -> addTypes(resource, types));
+    } else if (resources.hasNonNull("type")) {
+      types.add(resources.get("type").asText());
+    }
+  }
+
+  private static class CachedResponse {
+
+    private final JsonApiResponse response;
+    private final Set<String> dependencies;
+
+    CachedResponse(JsonApiResponse response, Set<String> dependencies) {
+      this.response = response;
+      this.dependencies = dependencies;
+    }
+  }
+}
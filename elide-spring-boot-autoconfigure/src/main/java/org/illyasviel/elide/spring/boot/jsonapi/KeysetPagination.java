@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.jsonapi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.core.HttpStatus;
+import com.yahoo.elide.core.exceptions.InvalidValueException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.illyasviel.elide.spring.boot.datastore.KeysetCursor;
+
+/**
+ * Keyset pagination of the JSON-API root collections: a request with page[after] (empty for
+ * the first page) is answered with the page after the token, and links.next holds the token
+ * of the following page, absent on the last page.
+ *
+ * @author olOwOlo
+ */
+public class KeysetPagination {
+
+  public static final String PAGE_AFTER = "page[after]";
+
+  private final String prefix;
+
+  /**
+   * Constructor.
+   *
+   * @param prefix prefix of the Elide controllers, e.g. /api
+   */
+  public KeysetPagination(String prefix) {
+    this.prefix = new JsonApiPathMatcher(prefix).getPrefix();
+  }
+
+  /**
+   * Run the request, keyset paged if it has page[after].
+   *
+   * @param path path without prefix
+   * @param queryParams query parameters
+   * @param request runs the request with the query parameters Elide understands
+   */
+  public ElideResponse get(String path, MultivaluedMap<String, String> queryParams,
+      Function<MultivaluedMap<String, String>, ElideResponse> request) {
+    List<String> after = queryParams.get(PAGE_AFTER);
+    if (after == null) {
+      return request.apply(queryParams);
+    }
+    String type = JsonApiPathMatcher.rootType(path);
+    if (!JsonApiPathMatcher.normalize(path).equals(type)) {
+      throw new InvalidValueException("page[after] only pages root collections.");
+    }
+    MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+    queryParams.forEach((key, values) -> {
+      if (!PAGE_AFTER.equals(key)) {
+        params.put(key, values);
+      }
+    });
+    KeysetCursor cursor = KeysetCursor.open(type,
+        after.isEmpty() || after.get(0) == null ? "" : after.get(0));
+    ElideResponse response;
+    try {
+      response = request.apply(params);
+    } finally {
+      KeysetCursor.close();
+    }
+    if (cursor.getNext() != null && response.getResponseCode() == HttpStatus.SC_OK
+        && response instanceof JsonApiResponse) {
+      JsonNode document = ((JsonApiResponse) response).getDocument();
+      if (document instanceof ObjectNode) {
+        ObjectNode links = ((ObjectNode) document).with("links");
+        links.put("next", link(path, params, cursor.getNext()));
+      }
+    }
+    return response;
+  }
+
+  private String link(String path, MultivaluedMap<String, String> params, String next) {
+    StringBuilder link = new StringBuilder(prefix).append('/')
+        .append(JsonApiPathMatcher.normalize(path))
+        .append('?');
+    for (Map.Entry<String, List<String>> param : params.entrySet()) {
+      for (String value : param.getValue()) {
+        link.append(encode(param.getKey()));
+        if (value != null) {
+          link.append('=').append(encode(value));
+        }
+        link.append('&');
+      }
+    }
+    return link.append(encode(PAGE_AFTER)).append('=').append(next).toString();
+  }
+
+  private static String encode(String value) {
+    try {
+      return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.jsonapi;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yahoo.elide.Elide;
+import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.ElideSettings;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.HttpStatus;
+import com.yahoo.elide.core.PersistentResource;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.exceptions.HttpStatusException;
+import com.yahoo.elide.core.exceptions.InvalidCollectionException;
+import com.yahoo.elide.core.exceptions.InvalidEntityBodyException;
+import com.yahoo.elide.core.exceptions.InvalidValueException;
+import com.yahoo.elide.core.exceptions.UnknownEntityException;
+import com.yahoo.elide.jsonapi.models.Relationship;
+import com.yahoo.elide.jsonapi.models.Resource;
+import com.yahoo.elide.security.User;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.persistence.EntityManager;
+import javax.persistence.GeneratedValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Import of newline delimited JSON-API resource objects into a root collection.
+ * The body is parsed as it is read, every chunk of resources is created and committed
+ * in its own transaction like a POST, so checks and lifecycle hooks run as usual.
+ * The session is cleared after each chunk. A failed chunk is rolled back and ends the import,
+ * the chunks before it stay committed.
+ *
+ * @author olOwOlo
+ */
+public class NdjsonImporter {
+
+  private static final Logger logger = LoggerFactory.getLogger(NdjsonImporter.class);
+
+  private final Elide elide;
+  private final EntityManager entityManager;
+  private final int chunkSize;
+  private final Map<Class<?>, Boolean> generatedIds = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param elide elide
+   * @param entityManager shared entity manager, cleared after each chunk
+   * @param chunkSize number of resources committed together
+   */
+  public NdjsonImporter(Elide elide, EntityManager entityManager, int chunkSize) {
+    this.elide = elide;
+    this.entityManager = entityManager;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Import the resources, a line may omit the type of the collection.
+   * The response holds the number of imported resources in meta.imported, also on error.
+   *
+   * @param path root collection, without prefix
+   * @param body one resource object per line
+   * @param opaqueUser user
+   */
+  public ElideResponse importResources(String path, InputStream body, Object opaqueUser) {
+    ElideSettings settings = elide.getElideSettings();
+    ObjectMapper objectMapper = settings.getMapper().getObjectMapper();
+    long imported = 0;
+    try {
+      String type = JsonApiPathMatcher.rootType(path);
+      Class<?> entityClass = settings.getDictionary().getEntityClass(type);
+      if (entityClass == null || !settings.getDictionary().isRoot(entityClass)
+          || !JsonApiPathMatcher.normalize(path).equals(type)) {
+        throw new InvalidCollectionException(path);
+      }
+      MappingIterator<Resource> resources = objectMapper.readerFor(Resource.class)
+          .readValues(body);
+      List<Resource> chunk = new ArrayList<>(chunkSize);
+      while (resources.hasNextValue()) {
+        chunk.add(resources.nextValue());
+        if (chunk.size() == chunkSize || !resources.hasNextValue()) {
+          importChunk(path, entityClass, chunk, opaqueUser, settings);
+          imported += chunk.size();
+          chunk.clear();
+          entityManager.clear();
+        }
+      }
+    } catch (HttpStatusException e) {
+      return response(e.getStatus(), (ObjectNode) e.getErrorResponse().getRight(), imported,
+          objectMapper);
+    } catch (IOException e) {
+      InvalidEntityBodyException invalid = new InvalidEntityBodyException(e.getMessage());
+      return response(invalid.getStatus(), (ObjectNode) invalid.getErrorResponse().getRight(),
+          imported, objectMapper);
+    } catch (RuntimeException e) {
+      logger.warn("Import into [{}] failed after {} resources.", path, imported);
+      throw e;
+    }
+    return response(HttpStatus.SC_OK, objectMapper.createObjectNode(), imported, objectMapper);
+  }
+
+  /**
+   * Runs the chunk the way Elide runs a request.
+   */
+  private void importChunk(String path, Class<?> entityClass, List<Resource> chunk,
+      Object opaqueUser, ElideSettings settings) throws IOException {
+    try (DataStoreTransaction tx = settings.getDataStore().beginTransaction()) {
+      User user = tx.accessUser(opaqueUser);
+      RequestScope requestScope = new RequestScope(path, null, tx, user, null, settings, true);
+      for (Resource resource : chunk) {
+        createObject(entityClass, resource, requestScope);
+      }
+      tx.preCommit();
+      requestScope.runQueuedPreSecurityTriggers();
+      requestScope.getPermissionExecutor().executeCommitChecks();
+      requestScope.saveOrCreateObjects();
+      tx.flush(requestScope);
+      requestScope.runQueuedPreCommitTriggers();
+      settings.getAuditLogger().commit(requestScope);
+      tx.commit(requestScope);
+      requestScope.runQueuedPostCommitTriggers();
+    }
+  }
+
+  private void createObject(Class<?> entityClass, Resource resource,
+      RequestScope requestScope) {
+    EntityDictionary dictionary = requestScope.getDictionary();
+    Class<?> newObjectClass = entityClass;
+    if (resource.getType() != null) {
+      newObjectClass = dictionary.getEntityClass(resource.getType());
+      if (newObjectClass == null) {
+        throw new UnknownEntityException(resource.getType());
+      }
+      if (!entityClass.isAssignableFrom(newObjectClass)) {
+        throw new InvalidValueException("Cannot assign value of type: " + resource.getType()
+            + " to type: " + entityClass);
+      }
+    }
+    PersistentResource<?> newObject = PersistentResource.createObject(null, newObjectClass,
+        requestScope, Optional.ofNullable(clientId(newObjectClass, resource, requestScope)));
+    if (resource.getAttributes() != null) {
+      resource.getAttributes().forEach(newObject::updateAttribute);
+    }
+    if (resource.getRelationships() != null) {
+      for (Map.Entry<String, Relationship> entry : resource.getRelationships().entrySet()) {
+        Relationship relationship = entry.getValue();
+        newObject.updateRelation(entry.getKey(),
+            relationship == null ? null : relationship.toPersistentResources(requestScope));
+      }
+    }
+  }
+
+  /**
+   * The new resources of a transaction are told apart by id, a line without id gets a
+   * random one if the id is generated (and Elide rejects it otherwise).
+   */
+  private String clientId(Class<?> newObjectClass, Resource resource,
+      RequestScope requestScope) {
+    if (resource.getId() != null) {
+      return resource.getId();
+    }
+    boolean generated = generatedIds.computeIfAbsent(newObjectClass, cls ->
+        requestScope.getDictionary()
+            .getIdAnnotations(requestScope.getTransaction().createNewObject(cls)).stream()
+            .anyMatch(annotation -> annotation instanceof GeneratedValue));
+    return generated ? UUID.randomUUID().toString() : null;
+  }
+
+  private static ElideResponse response(int status, ObjectNode body, long imported,
+      ObjectMapper objectMapper) {
+    body.putObject("meta").put("imported", imported);
+    try {
+      return new ElideResponse(status, objectMapper.writeValueAsString(body));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
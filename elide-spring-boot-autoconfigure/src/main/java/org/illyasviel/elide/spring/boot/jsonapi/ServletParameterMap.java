@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.jsonapi;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * Read-only {@link MultivaluedMap} view of a servlet parameter map, without copying it.
+ * Every value of a repeated parameter is kept.
+ *
+ * @author olOwOlo
+ */
+public final class ServletParameterMap extends AbstractMap<String, List<String>>
+    implements MultivaluedMap<String, String> {
+
+  private final Map<String, String[]> parameters;
+
+  public ServletParameterMap(Map<String, String[]> parameters) {
+    this.parameters = parameters;
+  }
+
+  @Override
+  public int size() {
+    return parameters.size();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return parameters.containsKey(key);
+  }
+
+  @Override
+  public List<String> get(Object key) {
+    return values(parameters.get(key));
+  }
+
+  @Override
+  public String getFirst(String key) {
+    String[] values = parameters.get(key);
+    return values == null || values.length == 0 ? null : values[0];
+  }
+
+  @Override
+  public Set<Entry<String, List<String>>> entrySet() {
+    return new AbstractSet<Entry<String, List<String>>>() {
+      @Override
+      public Iterator<Entry<String, List<String>>> iterator() {
+        Iterator<Entry<String, String[]>> entries = parameters.entrySet().iterator();
+        return new Iterator<Entry<String, List<String>>>() {
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public Entry<String, List<String>> next() {
+            Entry<String, String[]> entry = entries.next();
+            return new SimpleImmutableEntry<>(entry.getKey(), values(entry.getValue()));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return parameters.size();
+      }
+    };
+  }
+
+  @Override
+  public void putSingle(String key, String value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void add(String key, String value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void addAll(String key, String... newValues) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void addAll(String key, List<String> valueList) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void addFirst(String key, String value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean equalsIgnoreValueOrder(MultivaluedMap<String, String> otherMap) {
+    if (this == otherMap) {
+      return true;
+    }
+    if (!keySet().equals(otherMap.keySet())) {
+      return false;
+    }
+    for (Entry<String, List<String>> entry : entrySet()) {
+      List<String> otherValues = otherMap.get(entry.getKey());
+      if (entry.getValue().size() != otherValues.size()
+          || !entry.getValue().containsAll(otherValues)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<String> values(String[] values) {
+    return values == null ? null : Collections.unmodifiableList(Arrays.asList(values));
+  }
+}
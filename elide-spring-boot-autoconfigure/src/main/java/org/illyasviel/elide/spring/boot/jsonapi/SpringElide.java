@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.jsonapi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.yahoo.elide.Elide;
+import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.ElideSettings;
+import com.yahoo.elide.core.exceptions.HttpStatusException;
+import java.util.function.Supplier;
+import javax.ws.rs.core.MultivaluedMap;
+import lombok.Getter;
+import org.apache.commons.lang3.tuple.Pair;
+import org.illyasviel.elide.spring.boot.metrics.ElideMetrics;
+import org.illyasviel.elide.spring.boot.statistics.RequestStatisticsMonitor;
+
+/**
+ * Elide keeping the document of its responses (see {@link JsonApiResponse})
+ * and measuring its requests.
+ *
+ * @author olOwOlo
+ */
+public class SpringElide extends Elide {
+
+  private static final String UNKNOWN_MODEL = "unknown";
+  private static final String JSON_API = "jsonapi";
+
+  @Getter
+  private final ElideMetrics metrics;
+  /**
+   * Null if the statistics are not collected.
+   */
+  @Getter
+  private final RequestStatisticsMonitor statisticsMonitor;
+  private final boolean measured;
+  /**
+   * Null if the responses are not cached.
+   */
+  private final JsonApiResponseCache responseCache;
+  /**
+   * Null if the root collections are only paged by offset.
+   */
+  private final KeysetPagination keysetPagination;
+
+  public SpringElide(ElideSettings elideSettings) {
+    this(elideSettings, ElideMetrics.NOOP);
+  }
+
+  public SpringElide(ElideSettings elideSettings, ElideMetrics metrics) {
+    this(elideSettings, metrics, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param elideSettings settings
+   * @param metrics receiver of the measurements
+   * @param statisticsMonitor monitor of the statements of the requests, null to disable
+   */
+  public SpringElide(ElideSettings elideSettings, ElideMetrics metrics,
+      RequestStatisticsMonitor statisticsMonitor) {
+    this(elideSettings, metrics, statisticsMonitor, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param elideSettings settings
+   * @param metrics receiver of the measurements
+   * @param statisticsMonitor monitor of the statements of the requests, null to disable
+   * @param responseCache cache of the GET responses, null to disable
+   */
+  public SpringElide(ElideSettings elideSettings, ElideMetrics metrics,
+      RequestStatisticsMonitor statisticsMonitor, JsonApiResponseCache responseCache) {
+    this(elideSettings, metrics, statisticsMonitor, responseCache, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param elideSettings settings
+   * @param metrics receiver of the measurements
+   * @param statisticsMonitor monitor of the statements of the requests, null to disable
+   * @param responseCache cache of the GET responses, null to disable
+   * @param keysetPagination keyset pagination of the root collections, null to disable
+   */
+  public SpringElide(ElideSettings elideSettings, ElideMetrics metrics,
+      RequestStatisticsMonitor statisticsMonitor, JsonApiResponseCache responseCache,
+      KeysetPagination keysetPagination) {
+    super(elideSettings);
+    this.metrics = metrics;
+    this.statisticsMonitor = statisticsMonitor;
+    this.responseCache = responseCache;
+    this.keysetPagination = keysetPagination;
+    this.measured = metrics != ElideMetrics.NOOP || statisticsMonitor != null;
+  }
+
+  @Override
+  public ElideResponse get(String path, MultivaluedMap<String, String> queryParams,
+      Object opaqueUser) {
+    Supplier<ElideResponse> request = keysetPagination == null
+        ? () -> super.get(path, queryParams, opaqueUser)
+        : () -> getKeysetPage(path, queryParams, opaqueUser);
+    if (responseCache == null) {
+      return measure("GET", path, request);
+    }
+    return measure("GET", path, () -> responseCache.get(path, queryParams, opaqueUser,
+        getElideSettings(), request));
+  }
+
+  private ElideResponse getKeysetPage(String path, MultivaluedMap<String, String> queryParams,
+      Object opaqueUser) {
+    try {
+      return keysetPagination.get(path, queryParams,
+          params -> super.get(path, params, opaqueUser));
+    } catch (HttpStatusException e) {
+      return buildErrorResponse(e, false);
+    }
+  }
+
+  @Override
+  public ElideResponse post(String path, String jsonApiDocument, Object opaqueUser) {
+    return measure("POST", path, () -> super.post(path, jsonApiDocument, opaqueUser));
+  }
+
+  @Override
+  public ElideResponse patch(String contentType, String accept, String path,
+      String jsonApiDocument, Object opaqueUser) {
+    return measure("PATCH", path,
+        () -> super.patch(contentType, accept, path, jsonApiDocument, opaqueUser));
+  }
+
+  @Override
+  public ElideResponse delete(String path, String jsonApiDocument, Object opaqueUser) {
+    return measure("DELETE", path, () -> super.delete(path, jsonApiDocument, opaqueUser));
+  }
+
+  @Override
+  protected ElideResponse buildResponse(Pair<Integer, JsonNode> response) {
+    return new JsonApiResponse(response.getLeft(), response.getRight(),
+        getElideSettings().getMapper());
+  }
+
+  private ElideResponse measure(String method, String path, Supplier<ElideResponse> request) {
+    if (!measured) {
+      return request.get();
+    }
+    String model = model(path);
+    long start = System.nanoTime();
+    try {
+      ElideResponse response = statisticsMonitor == null
+          ? request.get() : statisticsMonitor.monitor(JSON_API, model, request);
+      metrics.recordJsonApiRequest(method, model, response.getResponseCode(), null,
+          System.nanoTime() - start);
+      return response;
+    } catch (RuntimeException | Error e) {
+      metrics.recordJsonApiRequest(method, model, 500, e, System.nanoTime() - start);
+      throw e;
+    }
+  }
+
+  /**
+   * Json api type of the root entity of the path, only known models to bound the tag values.
+   */
+  private String model(String path) {
+    String type = JsonApiPathMatcher.rootType(path);
+    return getElideSettings().getDictionary().getEntityClass(type) == null
+        ? UNKNOWN_MODEL : type;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.metrics;
+
+import org.illyasviel.elide.spring.boot.statistics.RequestStatistics;
+
+/**
+ * Receiver of the measurements of Elide requests and transactions.
+ * Durations are in nanoseconds, error is the exception thrown by the request or null.
+ *
+ * @author olOwOlo
+ */
+public interface ElideMetrics {
+
+  ElideMetrics NOOP = new ElideMetrics() {
+  };
+
+  /**
+   * A JSON-API request.
+   *
+   * @param method http method
+   * @param model json api type of the root entity, "unknown" if it is not a model
+   * @param status http status
+   * @param error exception thrown by the request, null if a response was built
+   * @param nanos duration
+   */
+  default void recordJsonApiRequest(String method, String model, int status, Throwable error,
+      long nanos) {
+  }
+
+  /**
+   * A GraphQL request, one per entry of a batch.
+   *
+   * @param operationName operation name, "anonymous" if it is not named
+   * @param mutation whether the request is a mutation
+   * @param status http status
+   * @param error exception thrown by the request, null if a response was built
+   * @param nanos duration
+   */
+  default void recordGraphQLRequest(String operationName, boolean mutation, int status,
+      Throwable error, long nanos) {
+  }
+
+  /**
+   * A phase of a transaction: begin, flush or commit.
+   *
+   * @param phase phase
+   * @param readOnly whether the transaction is read-only
+   * @param nanos duration
+   */
+  default void recordTransaction(String phase, boolean readOnly, long nanos) {
+  }
+
+  /**
+   * Statements, entity loads and collection fetches of a request, if statistics are enabled.
+   *
+   * @param api jsonapi or graphql
+   * @param name model or operation name
+   * @param statistics statistics
+   */
+  default void recordStatistics(String api, String name, RequestStatistics statistics) {
+  }
+}
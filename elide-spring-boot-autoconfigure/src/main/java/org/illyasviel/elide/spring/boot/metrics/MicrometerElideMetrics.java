@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.illyasviel.elide.spring.boot.statistics.RequestStatistics;
+
+/**
+ * Micrometer meters of Elide, the count of a timer is the number of requests.
+ * <ul>
+ *   <li>elide.jsonapi.requests: method, model, status, exception</li>
+ *   <li>elide.graphql.requests: operation, type, status, exception</li>
+ *   <li>elide.transaction: phase, read-only</li>
+ *   <li>elide.request.statements, elide.request.entities, elide.request.collections: api, name
+ *   (if statistics are enabled)</li>
+ * </ul>
+ * The client names the GraphQL operations, so a name is only recorded if it is listed,
+ * "other" otherwise. This keeps the number of meters bounded.
+ *
+ * @author olOwOlo
+ */
+public class MicrometerElideMetrics implements ElideMetrics {
+
+  private static final String NONE = "none";
+  private static final String OTHER = "other";
+  private static final String ANONYMOUS = "anonymous";
+  private static final String GRAPHQL = "graphql";
+
+  private final MeterRegistry registry;
+  private final Set<String> operationNames;
+
+  public MicrometerElideMetrics(MeterRegistry registry) {
+    this(registry, Collections.emptySet());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param registry registry
+   * @param operationNames GraphQL operation names recorded as they are
+   */
+  public MicrometerElideMetrics(MeterRegistry registry, Collection<String> operationNames) {
+    this.registry = registry;
+    this.operationNames = new HashSet<>(operationNames);
+  }
+
+  @Override
+  public void recordJsonApiRequest(String method, String model, int status, Throwable error,
+      long nanos) {
+    Timer.builder("elide.jsonapi.requests")
+        .description("Elide JSON-API requests")
+        .tag("method", method)
+        .tag("model", model)
+        .tag("status", String.valueOf(status))
+        .tag("exception", exception(error))
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordGraphQLRequest(String operationName, boolean mutation, int status,
+      Throwable error, long nanos) {
+    Timer.builder("elide.graphql.requests")
+        .description("Elide GraphQL requests")
+        .tag("operation", operation(operationName))
+        .tag("type", mutation ? "mutation" : "query")
+        .tag("status", String.valueOf(status))
+        .tag("exception", exception(error))
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordTransaction(String phase, boolean readOnly, long nanos) {
+    Timer.builder("elide.transaction")
+        .description("Elide transactions")
+        .tag("phase", phase)
+        .tag("read-only", String.valueOf(readOnly))
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordStatistics(String api, String name, RequestStatistics statistics) {
+    summary("elide.request.statements", "SQL statements of an Elide request", api, name)
+        .record(statistics.getStatements());
+    summary("elide.request.entities", "Entities loaded by an Elide request", api, name)
+        .record(statistics.getEntities());
+    summary("elide.request.collections", "Collections initialized by an Elide request", api,
+        name).record(statistics.getCollections());
+  }
+
+  private DistributionSummary summary(String meter, String description, String api,
+      String name) {
+    return DistributionSummary.builder(meter)
+        .description(description)
+        .tag("api", api)
+        .tag("name", GRAPHQL.equals(api) ? operation(name) : name)
+        .register(registry);
+  }
+
+  private String operation(String operationName) {
+    return ANONYMOUS.equals(operationName) || operationNames.contains(operationName)
+        ? operationName : OTHER;
+  }
+
+  private static String exception(Throwable error) {
+    return error == null ? NONE : error.getClass().getSimpleName();
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.statistics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statements, entity loads and collection fetches caused by one Elide request.
+ * Collected on the thread running the request, see {@link RequestStatisticsMonitor}.
+ *
+ * @author olOwOlo
+ */
+public final class RequestStatistics {
+
+  private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+  private static final ThreadLocal<RequestStatistics> COMPLETED = new ThreadLocal<>();
+
+  private final Map<String, Integer> statementCounts = new HashMap<>();
+  private int statements;
+  private int entities;
+  private int collections;
+  private int maxRepetitions;
+  private String mostRepeatedStatement;
+
+  private RequestStatistics() {
+  }
+
+  /**
+   * The statistics collected on this thread, null outside of a monitored request.
+   */
+  public static RequestStatistics current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * The statistics of the last request completed on this thread, if they are meant to be
+   * published (response header), cleared by this call.
+   */
+  public static RequestStatistics takeCompleted() {
+    RequestStatistics statistics = COMPLETED.get();
+    COMPLETED.remove();
+    return statistics;
+  }
+
+  /**
+   * Start collecting on this thread, null if a request is already collected.
+   */
+  static RequestStatistics open() {
+    if (CURRENT.get() != null) {
+      return null;
+    }
+    COMPLETED.remove();
+    RequestStatistics statistics = new RequestStatistics();
+    CURRENT.set(statistics);
+    return statistics;
+  }
+
+  void close(boolean publish) {
+    CURRENT.remove();
+    if (publish) {
+      COMPLETED.set(this);
+    }
+  }
+
+  void statementPrepared(String sql) {
+    statements++;
+    int repetitions = statementCounts.merge(sql, 1, Integer::sum);
+    if (repetitions > maxRepetitions) {
+      maxRepetitions = repetitions;
+      mostRepeatedStatement = sql;
+    }
+  }
+
+  void entityLoaded() {
+    entities++;
+  }
+
+  void collectionLoaded() {
+    collections++;
+  }
+
+  /**
+   * Number of SQL statements prepared.
+   */
+  public int getStatements() {
+    return statements;
+  }
+
+  /**
+   * Number of entities loaded, i.e. rows hydrated as entities.
+   */
+  public int getEntities() {
+    return entities;
+  }
+
+  /**
+   * Number of lazy collections initialized.
+   */
+  public int getCollections() {
+    return collections;
+  }
+
+  /**
+   * How often the most repeated statement was prepared, a high count is a likely N+1.
+   */
+  public int getMaxRepetitions() {
+    return maxRepetitions;
+  }
+
+  public String getMostRepeatedStatement() {
+    return mostRepeatedStatement;
+  }
+
+  @Override
+  public String toString() {
+    return "statements=" + statements + ";entities=" + entities
+        + ";collections=" + collections + ";repeated=" + maxRepetitions;
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.statistics;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Feeds the {@link RequestStatistics} of the current thread from hibernate.
+ * Registered as the statement inspector (hibernate.session_factory.statement_inspector)
+ * and as integrator (hibernate.integrator_provider).
+ *
+ * @author olOwOlo
+ */
+public class RequestStatisticsCollector implements StatementInspector, Integrator,
+    PostLoadEventListener, InitializeCollectionEventListener {
+
+  private static final long serialVersionUID = 1L;
+
+  @Override
+  public String inspect(String sql) {
+    RequestStatistics statistics = RequestStatistics.current();
+    if (statistics != null) {
+      statistics.statementPrepared(sql);
+    }
+    return sql;
+  }
+
+  @Override
+  public void onPostLoad(PostLoadEvent event) {
+    RequestStatistics statistics = RequestStatistics.current();
+    if (statistics != null) {
+      statistics.entityLoaded();
+    }
+  }
+
+  @Override
+  public void onInitializeCollection(InitializeCollectionEvent event) {
+    RequestStatistics statistics = RequestStatistics.current();
+    if (statistics != null) {
+      statistics.collectionLoaded();
+    }
+  }
+
+  @Override
+  public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+      SessionFactoryServiceRegistry serviceRegistry) {
+    EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.POST_LOAD, this);
+    registry.appendListeners(EventType.INIT_COLLECTION, this);
+  }
+
+  @Override
+  public void disintegrate(SessionFactoryImplementor sessionFactory,
+      SessionFactoryServiceRegistry serviceRegistry) {
+  }
+}
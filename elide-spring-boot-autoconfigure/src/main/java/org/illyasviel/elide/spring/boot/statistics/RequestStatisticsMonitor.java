@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.statistics;
+
+import java.util.function.Supplier;
+import org.illyasviel.elide.spring.boot.metrics.ElideMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the {@link RequestStatistics} of the Elide requests, records them and warns about
+ * the requests exceeding the thresholds.
+ *
+ * @author olOwOlo
+ */
+public class RequestStatisticsMonitor {
+
+  private static final Logger logger = LoggerFactory.getLogger(RequestStatisticsMonitor.class);
+
+  private final int maxStatements;
+  private final int maxRepeatedStatements;
+  private final boolean publish;
+  private final ElideMetrics metrics;
+
+  /**
+   * Constructor.
+   *
+   * @param maxStatements warn above this number of statements, 0 to disable
+   * @param maxRepeatedStatements warn when a statement is repeated more often, 0 to disable
+   * @param publish keep the statistics for the response header, see
+   *     {@link RequestStatistics#takeCompleted()}
+   * @param metrics receiver of the statistics
+   */
+  public RequestStatisticsMonitor(int maxStatements, int maxRepeatedStatements, boolean publish,
+      ElideMetrics metrics) {
+    this.maxStatements = maxStatements;
+    this.maxRepeatedStatements = maxRepeatedStatements;
+    this.publish = publish;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Run the request collecting its statistics, joins the request already collected on this
+   * thread.
+   *
+   * @param api jsonapi or graphql
+   * @param name model or operation name
+   * @param request request
+   */
+  public <T> T monitor(String api, String name, Supplier<T> request) {
+    RequestStatistics statistics = RequestStatistics.open();
+    if (statistics == null) {
+      return request.get();
+    }
+    boolean completed = false;
+    try {
+      T result = request.get();
+      completed = true;
+      return result;
+    } finally {
+      statistics.close(publish && completed);
+      check(api, name, statistics);
+    }
+  }
+
+  private void check(String api, String name, RequestStatistics statistics) {
+    metrics.recordStatistics(api, name, statistics);
+    if (maxStatements > 0 && statistics.getStatements() > maxStatements) {
+      logger.warn("[{}][{}] executed {} statements ({}).", api, name,
+          statistics.getStatements(), statistics);
+    }
+    if (maxRepeatedStatements > 0 && statistics.getMaxRepetitions() > maxRepeatedStatements) {
+      logger.warn("[{}][{}] executed the same statement {} times, likely N+1: {}", api, name,
+          statistics.getMaxRepetitions(), statistics.getMostRepeatedStatement());
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Created entities are inserted in JDBC batches, flushed in chunks.
+ * Runs on its own database, the generated ids would shift those of the other tests.
+ *
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {
+    "elide.bulk-write.enabled=true",
+    "elide.bulk-write.flush-size=2",
+    "spring.datasource.url=jdbc:h2:mem:bulk-write;DB_CLOSE_DELAY=-1",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "org.illyasviel.elide.spring.boot.BulkWriteTest$RecordingStatementInspector"})
+public class BulkWriteTest {
+
+  private final static ObjectMapper objectMapper = new ObjectMapper();
+
+  private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+  /**
+   * Records the prepared SQL, a batch is prepared once.
+   */
+  public static class RecordingStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+      statements.add(sql.toLowerCase());
+      return sql;
+    }
+  }
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+    statements.clear();
+  }
+
+  @After
+  public void after() {
+    jdbcTemplate.update("delete from author");
+  }
+
+  @Test
+  public void testInsertsAreBatched() throws Exception {
+    mockMvc.perform(post("/api/graphql")
+        .contentType(MediaType.APPLICATION_JSON)
+        .accept(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(JsonNodeFactory.instance.objectNode()
+            .put("query", "mutation { author(op: UPSERT, data: [{firstName: \"a1\"},"
+                + " {firstName: \"a2\"}, {firstName: \"a3\"}, {firstName: \"a4\"},"
+                + " {firstName: \"a5\"}]) { edges { node { id firstName } } } }"))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.author.edges.length()").value(5));
+
+    assertThat(jdbcTemplate.queryForObject("select count(*) from author", Long.class))
+        .isEqualTo(5);
+    // chunks of 2, 2 and 1 authors
+    assertThat(statements.stream().filter(sql -> sql.startsWith("insert into author")))
+        .hasSize(3);
+  }
+}
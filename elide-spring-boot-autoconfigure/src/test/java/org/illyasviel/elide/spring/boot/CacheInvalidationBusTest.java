@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.illyasviel.elide.spring.boot.invalidation.TcpCacheInvalidationBus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Invalidations sent between two nodes over loopback.
+ *
+ * @author olOwOlo
+ */
+public class CacheInvalidationBusTest {
+
+  private TcpCacheInvalidationBus node1;
+  private TcpCacheInvalidationBus node2;
+  private final BlockingQueue<Map<String, Set<String>>> received1 = new LinkedBlockingQueue<>();
+  private final BlockingQueue<Map<String, Set<String>>> received2 = new LinkedBlockingQueue<>();
+
+  @Before
+  public void before() throws Exception {
+    node2 = new TcpCacheInvalidationBus(new InetSocketAddress("127.0.0.1", 0),
+        Collections.emptyList());
+    node1 = new TcpCacheInvalidationBus(new InetSocketAddress("127.0.0.1", 0),
+        Collections.singletonList(new InetSocketAddress("127.0.0.1", node2.getLocalPort())));
+    node1.subscribe(received1::add);
+    node2.subscribe(received2::add);
+  }
+
+  @After
+  public void after() {
+    node1.close();
+    node2.close();
+  }
+
+  @Test
+  public void testPublish() throws Exception {
+    node1.publish(changes("book", "1", "2"));
+
+    assertThat(received1.poll()).isEqualTo(changes("book", "1", "2"));
+    assertThat(received2.poll(5, TimeUnit.SECONDS)).isEqualTo(changes("book", "1", "2"));
+
+    node1.publish(changes("author", "3"));
+    assertThat(received2.poll(5, TimeUnit.SECONDS)).isEqualTo(changes("author", "3"));
+  }
+
+  @Test
+  public void testBurst() throws Exception {
+    // sent while a message is in flight, the changes are merged into fewer messages
+    for (int i = 0; i < 100; i++) {
+      node1.publish(changes("book", String.valueOf(i % 10)));
+    }
+
+    Set<String> ids = new HashSet<>();
+    while (ids.size() < 10) {
+      Map<String, Set<String>> changes = received2.poll(5, TimeUnit.SECONDS);
+      assertThat(changes).isNotNull();
+      ids.addAll(changes.get("book"));
+    }
+    assertThat(received1).hasSize(100);
+  }
+
+  @Test
+  public void testStalledPeer() throws Exception {
+    // accepts the connection but never reads
+    try (ServerSocket stalled = new ServerSocket()) {
+      stalled.setReceiveBufferSize(4096);
+      stalled.bind(new InetSocketAddress("127.0.0.1", 0));
+      TcpCacheInvalidationBus node3 = new TcpCacheInvalidationBus(
+          new InetSocketAddress("127.0.0.1", 0),
+          Arrays.asList(new InetSocketAddress("127.0.0.1", stalled.getLocalPort()),
+              new InetSocketAddress("127.0.0.1", node2.getLocalPort())),
+          Duration.ofMillis(500));
+      try {
+        for (int i = 0; i < 200; i++) {
+          Set<String> ids = new HashSet<>();
+          for (int j = 0; j < 5000; j++) {
+            ids.add(i + "-" + j);
+          }
+          node3.publish(Collections.singletonMap("book", ids));
+        }
+        node3.publish(changes("author", "1"));
+
+        // the writes to the stalled peer time out, node2 still gets the changes
+        Map<String, Set<String>> received;
+        do {
+          received = received2.poll(30, TimeUnit.SECONDS);
+          assertThat(received).isNotNull();
+        } while (!received.containsKey("author"));
+      } finally {
+        node3.close();
+      }
+    }
+  }
+
+  private static Map<String, Set<String>> changes(String type, String... ids) {
+    Map<String, Set<String>> changes = new HashMap<>();
+    changes.put(type, new HashSet<>(Arrays.asList(ids)));
+    return changes;
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+import javax.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.dialect.H2Dialect;
+import org.illyasviel.elide.spring.boot.datastore.CountCache;
+import org.illyasviel.elide.spring.boot.datastore.DialectRowCountEstimator;
+import org.illyasviel.elide.spring.boot.datastore.RowCountEstimator;
+import org.illyasviel.elide.spring.boot.invalidation.ElideCacheInvalidationBus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Page totals read from the count cache, or estimated for large unfiltered collections.
+ *
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {
+    "elide.count.cache=true",
+    "elide.count.approximate=true",
+    "elide.count.approximate-threshold=1000"})
+@Import(CountTest.RowCountEstimatorConfiguration.class)
+public class CountTest {
+
+  private static final String JSON_API_CONTENT_TYPE = "application/vnd.api+json";
+
+  @TestConfiguration
+  static class RowCountEstimatorConfiguration {
+
+    @Bean
+    public RowCountEstimator rowCountEstimator() {
+      return (session, table) -> "book".equalsIgnoreCase(table)
+          || "author".equalsIgnoreCase(table) ? 1000000L : 10L;
+    }
+  }
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private CountCache countCache;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private ElideCacheInvalidationBus invalidationBus;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+    countCache.invalidateAll();
+    jdbcTemplate.update("insert into author(id, first_name) values (1001, 'a1')");
+    jdbcTemplate.update(
+        "insert into book(id, name, price, author_id) values (1001, 'b1', 10, 1001)");
+  }
+
+  @After
+  public void after() {
+    jdbcTemplate.update("delete from book");
+    jdbcTemplate.update("delete from author");
+  }
+
+  @Test
+  public void testCachedUntilCommit() throws Exception {
+    mockMvc.perform(get("/api/book?filter[book]=author.firstName==a1;price>=10&page[totals]")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.meta.page.totalRecords").value(1));
+
+    jdbcTemplate.update(
+        "insert into book(id, name, price, author_id) values (1002, 'b2', 20, 1001)");
+
+    // the same filter in another order
+    mockMvc.perform(get("/api/book?filter[book]=price>=10;author.firstName==a1&page[totals]")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(2))
+        .andExpect(jsonPath("$.meta.page.totalRecords").value(1));
+    mockMvc.perform(get("/api/book?filter[book]=price>=10&page[totals]")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.meta.page.totalRecords").value(2));
+
+    // the filter goes through the authors
+    mockMvc.perform(post("/api/author")
+        .contentType(JSON_API_CONTENT_TYPE)
+        .accept(JSON_API_CONTENT_TYPE)
+        .content("{\"data\": {\"type\": \"author\", \"attributes\": {\"firstName\": \"a2\"}}}"))
+        .andExpect(status().isCreated());
+
+    mockMvc.perform(get("/api/book?filter[book]=author.firstName==a1;price>=10&page[totals]")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.meta.page.totalRecords").value(2));
+  }
+
+  @Test
+  public void testApproximateCount() throws Exception {
+    mockMvc.perform(get("/api/book?page[totals]").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1))
+        .andExpect(jsonPath("$.meta.page.totalRecords").value(1000000));
+    // below the threshold
+    mockMvc.perform(get("/api/account?page[totals]").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.meta.page.totalRecords").value(0));
+    // the table is shared with AuthorName
+    mockMvc.perform(get("/api/author?page[totals]").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.meta.page.totalRecords").value(1));
+    mockMvc.perform(get("/api/book?filter[book]=price>=10&page[totals]")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.meta.page.totalRecords").value(1));
+  }
+
+  @Test
+  public void testInvalidatedThroughTheBus() throws Exception {
+    mockMvc.perform(get("/api/book?filter[book]=price>=10&page[totals]")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk());
+    assertEquals(1, countCache.size());
+
+    // as received from another node
+    invalidationBus.publish(Collections.singletonMap("book", Collections.singleton("1001")));
+    assertEquals(0, countCache.size());
+  }
+
+  @Test
+  @Transactional
+  public void testDialectEstimate() {
+    assertNotNull(new DialectRowCountEstimator(new H2Dialect())
+        .estimate(entityManager.unwrap(Session.class), "book"));
+  }
+}
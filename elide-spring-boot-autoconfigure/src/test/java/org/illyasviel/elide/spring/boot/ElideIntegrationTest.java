@@ -113,6 +113,17 @@ public class ElideIntegrationTest {
         .andExpect(jsonPath("$.meta.page.totalPages").value(17));
   }
 
+  @Test
+  public void testRootEntityRepeatedQueryParameter() throws Exception {
+    mockMvc.perform(get("/api/author?fields[author]=firstName&fields[author]=age&page[limit]=1")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(content().contentType(JSON_API_RESPONSE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data[0].attributes.firstName").value("firstName"))
+        .andExpect(jsonPath("$.data[0].attributes.age").value(18))
+        .andExpect(jsonPath("$.data[0].attributes.lastName").doesNotExist());
+  }
+
   @Test
   public void testSubCollectionEntityFormulaFetch() throws Exception {
     mockMvc.perform(get("/api/book/1/author")
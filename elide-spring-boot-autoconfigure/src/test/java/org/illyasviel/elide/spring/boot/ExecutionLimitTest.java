@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.yahoo.elide.Elide;
+import com.yahoo.elide.core.DataStoreTransaction;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.illyasviel.elide.spring.boot.exception.ServiceUnavailableException;
+import org.illyasviel.elide.spring.boot.execution.ElideRequestExecutor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {"elide.execution.max-transactions=1",
+    "elide.execution.transaction-wait=50ms"})
+public class ExecutionLimitTest {
+
+  @Autowired
+  private Elide elide;
+
+  @Test
+  public void testMaxTransactions() throws Exception {
+    try (DataStoreTransaction tx = elide.getDataStore().beginReadTransaction()) {
+      assertThatThrownBy(() -> beginInAnotherThread().join())
+          .hasCauseInstanceOf(ServiceUnavailableException.class);
+      tx.commit(null);
+    }
+    assertThat(beginInAnotherThread().join()).isTrue();
+  }
+
+  @Test
+  public void testVirtualThreadExecutor() throws Exception {
+    ElideRequestExecutor executor = ElideRequestExecutor.virtualThreads(1, 0);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      CompletableFuture<Boolean> running = executor.submit(() -> await(release));
+      assertThatThrownBy(() -> executor.submit(() -> true))
+          .isInstanceOf(RejectedExecutionException.class);
+      release.countDown();
+      assertThat(running.get(10, TimeUnit.SECONDS)).isTrue();
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+  private CompletableFuture<Boolean> beginInAnotherThread() {
+    return CompletableFuture.supplyAsync(() -> {
+      try (DataStoreTransaction tx = elide.getDataStore().beginReadTransaction()) {
+        tx.commit(null);
+        return true;
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  private static boolean await(CountDownLatch latch) {
+    try {
+      return latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      return false;
+    }
+  }
+}
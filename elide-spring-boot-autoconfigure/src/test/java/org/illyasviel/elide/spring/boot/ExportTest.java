@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Streamed NDJSON and CSV exports of the root collections.
+ *
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {
+    "elide.export.enabled=true",
+    "elide.export.chunk-size=2",
+    "spring.datasource.url=jdbc:h2:mem:export;DB_CLOSE_DELAY=-1"})
+public class ExportTest {
+
+  private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+  private static final String CSV_CONTENT_TYPE = "text/csv";
+  private static final String JSON_API_CONTENT_TYPE = "application/vnd.api+json";
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+    jdbcTemplate.update("insert into author(id, first_name) values (2001, 'a1')");
+    for (int i = 1; i <= 5; i++) {
+      jdbcTemplate.update("insert into book(id, name, price, author_id) values (?, ?, ?, 2001)",
+          2000 + i, "b" + i, i * 10);
+    }
+    jdbcTemplate.update("insert into book(id, name, price) values (2006, 'b6, \"best\"', 60)");
+  }
+
+  @After
+  public void after() {
+    jdbcTemplate.update("delete from book");
+    jdbcTemplate.update("delete from author");
+  }
+
+  @Test
+  public void testNdjson() throws Exception {
+    String body = mockMvc.perform(get("/api/export/book?sort=-name&page[size]=1")
+        .accept(NDJSON_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(NDJSON_CONTENT_TYPE))
+        .andReturn().getResponse().getContentAsString();
+
+    String[] lines = body.split("\n");
+    assertThat(lines).hasSize(6);
+    JsonNode first = new ObjectMapper().readTree(lines[0]);
+    assertThat(first.get("type").asText()).isEqualTo("book");
+    assertThat(first.get("id").asText()).isEqualTo("2006");
+    assertThat(first.get("attributes").get("name").asText()).isEqualTo("b6, \"best\"");
+    assertThat(first.has("relationships")).isFalse();
+    assertThat(new ObjectMapper().readTree(lines[5]).get("id").asText()).isEqualTo("2001");
+  }
+
+  @Test
+  public void testCsv() throws Exception {
+    mockMvc.perform(get("/api/export/book?fields[book]=name,price&filter[book]=price=ge=40"
+        + "&sort=name").accept(CSV_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(CSV_CONTENT_TYPE))
+        .andExpect(content().string("id,name,price\r\n"
+            + "2004,b4,40\r\n"
+            + "2005,b5,50\r\n"
+            + "2006,\"b6, \"\"best\"\"\",60\r\n"));
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    mockMvc.perform(get("/api/export/unknown").accept(NDJSON_CONTENT_TYPE))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.errors.length()").value(1));
+    mockMvc.perform(get("/api/export/book?filter[book]=unknown==1").accept(NDJSON_CONTENT_TYPE))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/export/rejectEntity").accept(NDJSON_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(content().string(""));
+  }
+
+  @Test
+  public void testExportIsNotAnId() throws Exception {
+    mockMvc.perform(get("/api/book/export").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().contentTypeCompatibleWith(JSON_API_CONTENT_TYPE));
+  }
+}
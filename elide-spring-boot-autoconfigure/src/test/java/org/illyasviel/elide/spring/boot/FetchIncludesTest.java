@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Included to-one relationships are joined into the root collection query,
+ * included collections of a page are batch fetched.
+ *
+ * @author olOwOlo
+ */
+@Transactional
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {
+    "elide.fetch-includes=true",
+    "elide.batch-fetch-size=100",
+    "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Sql(statements = {
+    "delete from book",
+    "delete from author",
+    "insert into author(id, first_name) values (1, 'a1'), (2, 'a2'), (3, 'a3')",
+    "insert into book(id, name, author_id) values (1, 'b1', 1), (2, 'b2', 1), (3, 'b3', 2),"
+        + " (4, 'b4', 3)"
+})
+public class FetchIncludesTest {
+
+  private static final String JSON_API_CONTENT_TYPE = "application/vnd.api+json";
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+    this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  @Test
+  public void testToOneIsJoined() throws Exception {
+    mockMvc.perform(get("/api/book?include=author&sort=name").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(4))
+        .andExpect(jsonPath("$.data[0].relationships.author.data.id").value("1"))
+        .andExpect(jsonPath("$.included.length()").value(3));
+
+    // books joined with their authors, linkage of the books of the included authors
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testToManyIsBatched() throws Exception {
+    mockMvc.perform(get("/api/author?include=books&sort=firstName&page[size]=2")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(2))
+        .andExpect(jsonPath("$.data[0].relationships.books.data.length()").value(2))
+        .andExpect(jsonPath("$.included.length()").value(3));
+
+    // a page of authors, books of the page
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import org.illyasviel.elide.spring.boot.graphql.FileSystemPersistedQueryStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Bound of the file store of persisted queries.
+ *
+ * @author olOwOlo
+ */
+public class FileSystemPersistedQueryStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testEviction() throws IOException {
+    File directory = folder.newFolder();
+    FileSystemPersistedQueryStore store =
+        new FileSystemPersistedQueryStore(directory.toPath(), 10);
+    for (int i = 0; i < 10; i++) {
+      store.put("hash" + i, "query" + i);
+    }
+    assertThat(directory.list()).hasSize(10);
+    assertThat(store.get("hash0")).isEqualTo("query0");
+
+    store.put("hash10", "query10");
+    assertThat(directory.list()).hasSize(9);
+
+    FileSystemPersistedQueryStore restarted =
+        new FileSystemPersistedQueryStore(directory.toPath(), 10);
+    restarted.put("hash11", "query11");
+    restarted.put("hash12", "query12");
+    assertThat(directory.list()).hasSize(9);
+  }
+}
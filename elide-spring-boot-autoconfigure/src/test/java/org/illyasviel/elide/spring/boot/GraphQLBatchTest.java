@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.yahoo.elide.Elide;
+import com.yahoo.elide.ElideResponse;
+import graphql.execution.preparsed.NoOpPreparsedDocumentProvider;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.illyasviel.elide.spring.boot.graphql.GraphQLHandle;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Batched GraphQL requests running concurrently, the data is committed
+ * since every query runs in its own transaction on another thread.
+ *
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {"elide.graphql.batch.parallel=true",
+    "elide.graphql.batch.max-concurrency=2"})
+public class GraphQLBatchTest {
+
+  private final static ObjectMapper objectMapper = new ObjectMapper();
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private Elide elide;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+    jdbcTemplate.update("insert into account(id, username, password) values (233, 'alice', '123')");
+    jdbcTemplate.update("insert into book(id, unique_number) values (666, 1)");
+  }
+
+  @After
+  public void after() {
+    jdbcTemplate.update("delete from account");
+    jdbcTemplate.update("delete from book");
+  }
+
+  @Test
+  public void testParallelQueries() throws Exception {
+    batch("query { account { edges { node { id username } } } }",
+        "query { book { edges { node { id uniqueNumber } } } }",
+        "query { account(ids: [\"233\"]) { edges { node { password } } } }",
+        "query { book(ids: [\"666\"]) { edges { node { id } } } }",
+        "query { author { edges { node { id } } } }")
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(5))
+        .andExpect(jsonPath("$[0].data.account.edges[0].node.username").value("alice"))
+        .andExpect(jsonPath("$[1].data.book.edges[0].node.uniqueNumber").value(1))
+        .andExpect(jsonPath("$[2].data.account.edges[0].node.password").value("123"))
+        .andExpect(jsonPath("$[3].data.book.edges[0].node.id").value("666"))
+        .andExpect(jsonPath("$[4].data.author.edges.length()").value(0));
+  }
+
+  @Test
+  public void testBatchWithMutationRunsSerially() throws Exception {
+    batch("mutation { account(op: DELETE, ids: [\"233\"]) { edges { node { id } } } }",
+        "query { account { edges { node { id } } } }")
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].errors").doesNotExist())
+        .andExpect(jsonPath("$[1].data.account.edges.length()").value(0));
+  }
+
+  @Test
+  public void testBatchWithCommentedMutationRunsSerially() throws Exception {
+    batch("# delete alice\nmutation { account(op: DELETE, ids: [\"233\"]) { edges { node { id } } } }",
+        "query { account { edges { node { id } } } }")
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].errors").doesNotExist())
+        .andExpect(jsonPath("$[1].data.account.edges.length()").value(0));
+  }
+
+  @Test
+  public void testFullExecutorRejectsBatch() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.shutdown();
+    GraphQLHandle handle = new GraphQLHandle(elide, NoOpPreparsedDocumentProvider.INSTANCE,
+        null, executor, 2);
+
+    ElideResponse response = handle.post(batchDocument(
+        "query { account { edges { node { id } } } }",
+        "query { book { edges { node { id } } } }"), null);
+
+    assertThat(response.getResponseCode()).isEqualTo(503);
+  }
+
+  @Test
+  public void testFailingEntryKeepsTheArray() throws Exception {
+    PreparsedDocumentProvider failing = (query, parseAndValidate) -> {
+      if (query.contains("book")) {
+        throw new IllegalStateException("boom");
+      }
+      return parseAndValidate.apply(query);
+    };
+    GraphQLHandle handle = new GraphQLHandle(elide, failing);
+
+    ElideResponse response = handle.post(batchDocument(
+        "query { account { edges { node { id } } } }",
+        "query { book { edges { node { id } } } }",
+        "query { account(ids: [\"233\"]) { edges { node { username } } } }"), null);
+
+    assertThat(response.getResponseCode()).isEqualTo(200);
+    JsonNode body = objectMapper.readTree(response.getBody());
+    assertThat(body.size()).isEqualTo(3);
+    assertThat(body.get(0).path("data").path("account").path("edges").size()).isEqualTo(1);
+    assertThat(body.get(1).path("errors").get(0).path("message").asText())
+        .isEqualTo("Internal Server Error");
+    assertThat(body.get(2).at("/data/account/edges/0/node/username").asText())
+        .isEqualTo("alice");
+  }
+
+  private ResultActions batch(String... queries) throws Exception {
+    return mockMvc.perform(post("/api/graphql")
+        .contentType(MediaType.APPLICATION_JSON)
+        .accept(MediaType.APPLICATION_JSON)
+        .content(batchDocument(queries)));
+  }
+
+  private String batchDocument(String... queries) throws Exception {
+    ArrayNode document = JsonNodeFactory.instance.arrayNode();
+    for (String query : queries) {
+      document.addObject().put("query", query);
+    }
+    return objectMapper.writeValueAsString(document);
+  }
+}
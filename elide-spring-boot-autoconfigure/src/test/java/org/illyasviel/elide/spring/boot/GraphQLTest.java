@@ -17,8 +17,10 @@
 package org.illyasviel.elide.spring.boot;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -27,8 +29,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import org.illyasviel.elide.spring.boot.graphql.CachingPreparsedDocumentProvider;
 import org.illyasviel.elide.spring.boot.repository.AccountRepository;
 import org.junit.Before;
 import org.junit.Test;
@@ -64,6 +71,9 @@ public class GraphQLTest {
   @Autowired
   private AccountRepository accountRepository;
 
+  @Autowired
+  private PreparsedDocumentProvider preparsedDocumentProvider;
+
   @Before
   public void before() {
     this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
@@ -112,6 +122,22 @@ public class GraphQLTest {
         .andExpect(jsonPath("$[1].data.book.edges[0].node.uniqueNumber").value(1));
   }
 
+  @Sql(statements = "insert into account(id, username, password) values (233, 'alice', '123')")
+  @Test
+  public void testReadByArrayWithError() throws Exception {
+    String accountQuery = toJsonQuery("query { account { edges { node { id } } } }", null);
+
+    mockMvc.perform(post("/api/graphql")
+        .contentType(MediaType.APPLICATION_JSON)
+        .accept(MediaType.APPLICATION_JSON)
+        .content("[{}," + accountQuery + "]"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[0].length()").value(0))
+        .andExpect(jsonPath("$[1].data.account.edges[0].node.id").value("233"));
+  }
+
   @Sql(statements = "insert into account(id, username, password) values (233, 'alice', '123')")
   @Test
   public void testUpdate() throws Exception {
@@ -131,6 +157,89 @@ public class GraphQLTest {
     assertThat(accountRepository.findAll().size()).isEqualTo(1);
   }
 
+  @Test
+  public void testDocumentCache() throws Exception {
+    CachingPreparsedDocumentProvider documentCache =
+        (CachingPreparsedDocumentProvider) preparsedDocumentProvider;
+    String query = "query { account { edges { node { id username } } } }";
+
+    graphQLQuery(query).andExpect(status().isOk());
+    CacheStats before = documentCache.stats();
+    graphQLQuery(query).andExpect(status().isOk());
+    graphQLQuery(query).andExpect(status().isOk());
+    CacheStats stats = documentCache.stats().minus(before);
+
+    // The operation type is read from the cached document before graphql-java executes it.
+    assertThat(stats.hitCount()).isEqualTo(4);
+    assertThat(stats.missCount()).isEqualTo(0);
+  }
+
+  @Sql(statements = "insert into account(id, username, password) values (233, 'alice', '123')")
+  @Test
+  public void testPersistedQuery() throws Exception {
+    String query = "query { account { edges { node { id username } } } }";
+    String hash = Hashing.sha256().hashString(query, StandardCharsets.UTF_8).toString();
+
+    persistedQuery(null, hash)
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.errors[0].message").value("PersistedQueryNotFound"))
+        .andExpect(jsonPath("$.errors[0].extensions.code").value("PERSISTED_QUERY_NOT_FOUND"));
+
+    persistedQuery(query, hash)
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.account.edges[0].node.id").value("233"));
+
+    persistedQuery(null, hash)
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.account.edges[0].node.username").value("alice"));
+
+    mockMvc.perform(get("/api/graphql")
+        .param("extensions", persistedQueryExtensions(hash).toString())
+        .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.account.edges[0].node.username").value("alice"));
+  }
+
+  @Test
+  public void testInvalidPersistedQueryIsNotRegistered() throws Exception {
+    String query = "query { account { edges { node { unknownField } } } }";
+    String hash = Hashing.sha256().hashString(query, StandardCharsets.UTF_8).toString();
+
+    persistedQuery(query, hash)
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.errors").exists());
+
+    persistedQuery(null, hash)
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.errors[0].message").value("PersistedQueryNotFound"));
+  }
+
+  @Test
+  public void testPersistedQueryHashMismatch() throws Exception {
+    String hash = Hashing.sha256().hashString("query { book { edges { node { id } } } }",
+        StandardCharsets.UTF_8).toString();
+
+    persistedQuery("query { account { edges { node { id } } } }", hash)
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.errors[0].message").value("provided sha does not match query"));
+  }
+
+  @Test
+  public void testMutationByGet() throws Exception {
+    mockMvc.perform(get("/api/graphql")
+        .param("query", "mutation { account(op: DELETE, ids: [\"1\"]) { edges { node { id } } } }")
+        .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isMethodNotAllowed());
+  }
+
+  @Test
+  public void testCommentedMutationByGet() throws Exception {
+    mockMvc.perform(get("/api/graphql")
+        .param("query", "#x\nmutation { account(op: DELETE, ids: [\"1\"]) { edges { node { id } } } }")
+        .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isMethodNotAllowed());
+  }
+
   @Test
   public void testInvalidJson() throws Exception {
     mockMvc.perform(post("/api/graphql")
@@ -169,6 +278,23 @@ public class GraphQLTest {
         .content(toJsonQuery(query, variables)));
   }
 
+  private ResultActions persistedQuery(String query, String hash) throws Exception {
+    ObjectNode graphQLNode = (ObjectNode) toJsonNode(query, null);
+    graphQLNode.set("extensions", persistedQueryExtensions(hash));
+    return mockMvc.perform(post("/api/graphql")
+        .contentType(MediaType.APPLICATION_JSON)
+        .accept(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(graphQLNode)));
+  }
+
+  private ObjectNode persistedQueryExtensions(String hash) {
+    ObjectNode extensions = JsonNodeFactory.instance.objectNode();
+    extensions.putObject("persistedQuery")
+        .put("version", 1)
+        .put("sha256Hash", hash);
+    return extensions;
+  }
+
   private String toJsonQuery(String query, Map<String, Object> variables) throws JsonProcessingException {
     return objectMapper.writeValueAsString(toJsonNode(query, variables));
   }
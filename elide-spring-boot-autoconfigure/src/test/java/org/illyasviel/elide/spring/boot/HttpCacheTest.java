@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * ETag, conditional GET and Cache-Control of the JSON-API resources.
+ *
+ * @author olOwOlo
+ */
+@Transactional
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {
+    "elide.http-cache.enabled=true",
+    "elide.http-cache.models.book=max-age=60",
+})
+@Sql(statements = {
+    "delete from book",
+    "delete from author",
+    "insert into author(id, first_name) values (1, 'a1')",
+    "insert into book(id, name, author_id) values (1, 'b1', 1), (2, 'b2', 1)"
+})
+public class HttpCacheTest {
+
+  private static final String JSON_API_CONTENT_TYPE = "application/vnd.api+json";
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+  }
+
+  @Test
+  public void testNotModified() throws Exception {
+    String etag = mockMvc.perform(get("/api/book").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(JSON_API_CONTENT_TYPE + ";charset=UTF-8"))
+        .andExpect(jsonPath("$.data.length()").value(2))
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60"))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    mockMvc.perform(get("/api/book")
+        .accept(JSON_API_CONTENT_TYPE)
+        .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, etag))
+        .andExpect(content().string(""));
+
+    mockMvc.perform(get("/api/book/1")
+        .accept(JSON_API_CONTENT_TYPE)
+        .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.id").value("1"));
+  }
+
+  @Test
+  public void testDefaultCacheControl() throws Exception {
+    mockMvc.perform(get("/api/author/1").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+        .andExpect(header().exists(HttpHeaders.ETAG));
+
+    mockMvc.perform(get("/api/author/2").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isNotFound())
+        .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+  }
+}
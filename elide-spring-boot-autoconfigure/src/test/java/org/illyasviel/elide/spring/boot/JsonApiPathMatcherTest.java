@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.illyasviel.elide.spring.boot.jsonapi.JsonApiPathMatcher;
+import org.junit.Test;
+
+/**
+ * Prefix stripping of the JSON-API controllers.
+ *
+ * @author olOwOlo
+ */
+public class JsonApiPathMatcherTest {
+
+  @Test
+  public void testStrip() {
+    JsonApiPathMatcher matcher = new JsonApiPathMatcher("/api");
+    assertThat(matcher.strip("/api/book/1")).isEqualTo("/book/1");
+    assertThat(matcher.strip("/api")).isEqualTo("");
+    assertThat(matcher.strip("/apis/book")).isEqualTo("/apis/book");
+    assertThat(matcher.strip("/book")).isEqualTo("/book");
+  }
+
+  @Test
+  public void testPrefixIsNotARegex() {
+    JsonApiPathMatcher matcher = new JsonApiPathMatcher("/api.v1/");
+    assertThat(matcher.strip("/api.v1/book")).isEqualTo("/book");
+    assertThat(matcher.strip("/apixv1/book")).isEqualTo("/apixv1/book");
+  }
+
+  @Test
+  public void testRootType() {
+    assertThat(JsonApiPathMatcher.rootType("/book/1/author")).isEqualTo("book");
+    assertThat(JsonApiPathMatcher.rootType("/book")).isEqualTo("book");
+    assertThat(JsonApiPathMatcher.rootType("book/1")).isEqualTo("book");
+  }
+}
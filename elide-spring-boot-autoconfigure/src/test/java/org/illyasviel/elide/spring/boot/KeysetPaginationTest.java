@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.jayway.jsonpath.JsonPath;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Keyset pagination, following links.next.
+ *
+ * @author olOwOlo
+ */
+@Transactional
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = "elide.keyset-pagination=true")
+@Sql(statements = {
+    "delete from book",
+    "delete from author",
+    "insert into author(id, first_name) values (1, 'a1')",
+    "insert into book(id, name, price, author_id) values (1, 'b1', 10, 1), (2, 'b2', 20, 1),"
+        + " (3, 'b3', 20, 1), (4, 'b4', 20, 1), (5, 'b5', 30, 1)"
+})
+public class KeysetPaginationTest {
+
+  private static final String JSON_API_CONTENT_TYPE = "application/vnd.api+json";
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+  }
+
+  @Test
+  public void testFollowNext() throws Exception {
+    String first = mockMvc.perform(get("/api/book?sort=-price&page[size]=2&page[after]=")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data[0].id").value("5"))
+        .andExpect(jsonPath("$.data[1].id").value("2"))
+        .andExpect(jsonPath("$.links.next", startsWith("/api/book?")))
+        .andReturn().getResponse().getContentAsString();
+
+    // the ties of price are broken by id
+    String second = mockMvc.perform(get(URI.create(JsonPath.read(first, "$.links.next")))
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(2))
+        .andExpect(jsonPath("$.data[0].id").value("3"))
+        .andExpect(jsonPath("$.data[1].id").value("4"))
+        .andReturn().getResponse().getContentAsString();
+
+    mockMvc.perform(get(URI.create(JsonPath.read(second, "$.links.next")))
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1))
+        .andExpect(jsonPath("$.data[0].id").value("1"))
+        .andExpect(jsonPath("$.links").doesNotExist());
+  }
+
+  @Test
+  public void testFilterAndTotals() throws Exception {
+    String first = mockMvc.perform(get("/api/book?filter[book]=price==20&page[size]=2"
+        + "&page[totals]&page[after]=")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data[0].id").value("2"))
+        .andExpect(jsonPath("$.meta.page.totalRecords").value(3))
+        .andReturn().getResponse().getContentAsString();
+
+    mockMvc.perform(get(URI.create(JsonPath.read(first, "$.links.next")))
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1))
+        .andExpect(jsonPath("$.data[0].id").value("4"))
+        .andExpect(jsonPath("$.meta.page.totalRecords").value(3));
+  }
+
+  @Test
+  public void testInvalidRequests() throws Exception {
+    mockMvc.perform(get("/api/book?page[after]=garbage").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/book?page[number]=2&page[size]=2&page[after]=")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/author/1/books?page[after]=").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isBadRequest());
+
+    String first = mockMvc.perform(get("/api/book?page[size]=2&page[after]=")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    String next = JsonPath.read(first, "$.links.next");
+    mockMvc.perform(get(URI.create(next + "&sort=name")).accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testUnreadableSortKey() throws Exception {
+    // isbn is not readable
+    mockMvc.perform(get("/api/book?sort=isbn&page[after]=").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isForbidden());
+    // the published articles are checked in memory
+    mockMvc.perform(get("/api/article?page[after]=").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testNullSortValues() throws Exception {
+    jdbcTemplate.update("insert into book(id, name, price, author_id) values (6, 'b6', null, 1),"
+        + " (7, 'b7', null, 1)");
+
+    // the second page ends on a null price
+    assertThat(pages("/api/book?sort=price&page[size]=2&page[after]="))
+        .containsExactly("1", "2", "3", "4", "5", "6", "7");
+    assertThat(pages("/api/book?sort=-price&page[size]=2&page[after]="))
+        .containsExactly("6", "7", "5", "2", "3", "4", "1");
+  }
+
+  /**
+   * The ids of all the pages, following links.next.
+   */
+  private List<String> pages(String url) throws Exception {
+    List<String> ids = new ArrayList<>();
+    URI next = URI.create(url);
+    while (next != null) {
+      String page = mockMvc.perform(get(next).accept(JSON_API_CONTENT_TYPE))
+          .andExpect(status().isOk())
+          .andReturn().getResponse().getContentAsString();
+      ids.addAll(JsonPath.read(page, "$.data[*].id"));
+      List<String> links = JsonPath.read(page, "$..links.next");
+      next = links.isEmpty() ? null : URI.create(links.get(0));
+    }
+    return ids;
+  }
+
+  @Test
+  public void testOffsetPaginationUnchanged() throws Exception {
+    mockMvc.perform(get("/api/book?page[number]=2&page[size]=2").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(2))
+        .andExpect(jsonPath("$.links").doesNotExist());
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@Import(MetricsTest.MeterRegistryConfiguration.class)
+@TestPropertySource(properties = "elide.metrics.operation-names=books")
+public class MetricsTest {
+
+  @TestConfiguration
+  static class MeterRegistryConfiguration {
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+  }
+
+  @Test
+  public void testJsonApiMetrics() throws Exception {
+    long ok = count("elide.jsonapi.requests",
+        "method", "GET", "model", "book", "status", "200", "exception", "none");
+    long notFound = count("elide.jsonapi.requests", "model", "book", "status", "404");
+    long unknown = count("elide.jsonapi.requests", "model", "unknown");
+    long commit = count("elide.transaction", "phase", "commit", "read-only", "true");
+
+    mockMvc.perform(get("/api/book")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/book/1")).andExpect(status().isNotFound());
+    mockMvc.perform(get("/api/whatever")).andExpect(status().isNotFound());
+
+    assertThat(count("elide.jsonapi.requests",
+        "method", "GET", "model", "book", "status", "200", "exception", "none"))
+        .isEqualTo(ok + 1);
+    assertThat(count("elide.jsonapi.requests", "model", "book", "status", "404"))
+        .isEqualTo(notFound + 1);
+    assertThat(count("elide.jsonapi.requests", "model", "unknown")).isEqualTo(unknown + 1);
+    assertThat(count("elide.transaction", "phase", "commit", "read-only", "true"))
+        .isEqualTo(commit + 1);
+  }
+
+  @Test
+  public void testGraphQLMetrics() throws Exception {
+    long books = count("elide.graphql.requests",
+        "operation", "books", "type", "query", "status", "200");
+
+    mockMvc.perform(post("/api/graphql")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"query\":\"query books { book { edges { node { id } } } }\","
+            + "\"operationName\":\"books\"}"))
+        .andExpect(status().isOk());
+
+    assertThat(count("elide.graphql.requests",
+        "operation", "books", "type", "query", "status", "200")).isEqualTo(books + 1);
+  }
+
+  @Test
+  public void testUnlistedOperationName() throws Exception {
+    long other = count("elide.graphql.requests", "operation", "other", "type", "mutation");
+
+    mockMvc.perform(post("/api/graphql")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"query\":\"# no-op\\nmutation random123 { book(ids: [\\\"0\\\"]) "
+            + "{ edges { node { id } } } }\",\"operationName\":\"random123\"}"))
+        .andExpect(status().isOk());
+
+    assertThat(count("elide.graphql.requests", "operation", "other", "type", "mutation"))
+        .isEqualTo(other + 1);
+    assertThat(meterRegistry.find("elide.graphql.requests").tag("operation", "random123")
+        .timer()).isNull();
+  }
+
+  private long count(String name, String... tags) {
+    Timer timer = meterRegistry.find(name).tags(tags).timer();
+    return timer == null ? 0 : timer.count();
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * NDJSON imports committed in chunks.
+ * Runs on its own database, the generated ids would shift those of the other tests.
+ *
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {
+    "elide.ndjson-import.enabled=true",
+    "elide.ndjson-import.chunk-size=2",
+    "spring.datasource.url=jdbc:h2:mem:ndjson-import;DB_CLOSE_DELAY=-1"})
+public class NdjsonImportTest {
+
+  private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+    jdbcTemplate.update("insert into author(id, first_name) values (1001, 'a1')");
+  }
+
+  @After
+  public void after() {
+    jdbcTemplate.update("delete from book");
+    jdbcTemplate.update("delete from author");
+    jdbcTemplate.update("delete from account");
+  }
+
+  @Test
+  public void testImport() throws Exception {
+    StringBuilder body = new StringBuilder();
+    for (int i = 1; i <= 5; i++) {
+      body.append("{\"type\": \"book\", \"attributes\": {\"name\": \"b").append(i)
+          .append("\"}, \"relationships\": {\"author\": {\"data\": {\"type\": \"author\","
+              + " \"id\": \"1001\"}}}}\n");
+    }
+    mockMvc.perform(post("/api/book").contentType(NDJSON_CONTENT_TYPE).content(body.toString()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.meta.imported").value(5));
+
+    assertThat(jdbcTemplate.queryForObject(
+        "select count(*) from book where author_id = 1001", Long.class)).isEqualTo(5);
+  }
+
+  @Test
+  public void testHooksRun() throws Exception {
+    mockMvc.perform(post("/api/account").contentType(NDJSON_CONTENT_TYPE)
+        .content("{\"attributes\": {\"username\": \"u1\", \"password\": \"p1\"}}\n"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.meta.imported").value(1));
+
+    assertThat(jdbcTemplate.queryForObject("select password from account", String.class))
+        .isEqualTo("encoded password");
+  }
+
+  @Test
+  public void testFailedChunkEndsImport() throws Exception {
+    mockMvc.perform(post("/api/book").contentType(NDJSON_CONTENT_TYPE)
+        .content("{\"attributes\": {\"name\": \"b1\"}}\n"
+            + "{\"attributes\": {\"name\": \"b2\"}}\n"
+            + "{\"attributes\": {\"name\": \"b3\"}}\n"
+            + "{\"attributes\": {\"unknown\": \"b4\"}}\n"
+            + "{\"attributes\": {\"name\": \"b5\"}}\n"))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.errors.length()").value(1))
+        .andExpect(jsonPath("$.meta.imported").value(2));
+
+    assertThat(jdbcTemplate.queryForObject("select count(*) from book", Long.class))
+        .isEqualTo(2);
+
+    mockMvc.perform(post("/api/book").contentType(NDJSON_CONTENT_TYPE)
+        .content("{\"attributes\": {\"name\": \"b6\"}\n"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.meta.imported").value(0));
+    mockMvc.perform(post("/api/book/1/author").contentType(NDJSON_CONTENT_TYPE)
+        .content("{\"attributes\": {\"firstName\": \"a2\"}}\n"))
+        .andExpect(status().isNotFound());
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Sparse fieldsets selected by the SQL of the root collections.
+ *
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {
+    "elide.fieldset-projection=true",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "org.illyasviel.elide.spring.boot.ProjectionTest$RecordingStatementInspector"})
+public class ProjectionTest {
+
+  private static final String JSON_API_CONTENT_TYPE = "application/vnd.api+json";
+
+  private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+  /**
+   * Records the executed SQL.
+   */
+  public static class RecordingStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+      statements.add(sql.toLowerCase());
+      return sql;
+    }
+  }
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+    jdbcTemplate.update("insert into author(id, first_name) values (1001, 'a1')");
+    jdbcTemplate.update(
+        "insert into book(id, name, price, author_id) values (1001, 'b1', 10, 1001)");
+    jdbcTemplate.update(
+        "insert into book(id, name, price, author_id) values (1002, 'b2', 20, 1001)");
+    statements.clear();
+  }
+
+  @After
+  public void after() {
+    jdbcTemplate.update("delete from book");
+    jdbcTemplate.update("delete from author");
+  }
+
+  @Test
+  public void testAttributesAreProjected() throws Exception {
+    mockMvc.perform(get("/api/book?fields[book]=name&filter[book]=price>10&sort=-name"
+        + "&page[totals]").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1))
+        .andExpect(jsonPath("$.data[0].id").value("1002"))
+        .andExpect(jsonPath("$.data[0].attributes.name").value("b2"))
+        .andExpect(jsonPath("$.data[0].attributes", not(hasKey("price"))))
+        .andExpect(jsonPath("$.data[0]", not(hasKey("relationships"))))
+        .andExpect(jsonPath("$.meta.page.totalRecords").value(1));
+
+    List<String> selects = bookSelects();
+    assertEquals(1, selects.size());
+    assertFalse(selects.get(0).contains("price"));
+    assertFalse(statements.stream().anyMatch(sql -> sql.contains("from author")));
+  }
+
+  @Test
+  public void testEntitiesAreLoadedForRelationships() throws Exception {
+    mockMvc.perform(get("/api/book?fields[book]=name,author").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data[0].relationships.author.data.id").value("1001"));
+    assertTrue(bookSelects().get(0).contains("price"));
+
+    statements.clear();
+    mockMvc.perform(get("/api/book?fields[book]=name&fields[author]=firstName&include=author")
+        .accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.included[0].attributes.firstName").value("a1"));
+    assertTrue(bookSelects().get(0).contains("price"));
+  }
+
+  @Test
+  public void testEntitiesAreLoadedForReadChecks() throws Exception {
+    jdbcTemplate.update("insert into article(id, title, status) values (1, 'a1', 'published')");
+    jdbcTemplate.update("insert into article(id, title, status) values (2, 'a2', 'draft')");
+    try {
+      mockMvc.perform(get("/api/article?fields[article]=title").accept(JSON_API_CONTENT_TYPE))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.length()").value(1))
+          .andExpect(jsonPath("$.data[0].attributes.title").value("a1"))
+          .andExpect(jsonPath("$.data[0].attributes", not(hasKey("status"))));
+      assertTrue(statements.stream()
+          .anyMatch(sql -> sql.startsWith("select") && sql.contains(" from article")
+              && sql.substring(0, sql.indexOf(" from article")).contains("status")));
+    } finally {
+      jdbcTemplate.update("delete from article");
+    }
+  }
+
+  @Test
+  public void testSubclassesAreLoaded() throws Exception {
+    jdbcTemplate.update("insert into vehicle(dtype, id, name) values ('Vehicle', 1, 'v1')");
+    jdbcTemplate.update("insert into vehicle(dtype, id, name, seats) values ('Car', 2, 'c1', 4)");
+    try {
+      mockMvc.perform(get("/api/vehicle?fields[vehicle]=name&sort=id")
+          .accept(JSON_API_CONTENT_TYPE))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.length()").value(2))
+          .andExpect(jsonPath("$.data[0].type").value("vehicle"))
+          .andExpect(jsonPath("$.data[1].type").value("car"));
+    } finally {
+      jdbcTemplate.update("delete from vehicle");
+    }
+  }
+
+  /**
+   * The select lists of the book queries.
+   */
+  private static List<String> bookSelects() {
+    return statements.stream()
+        .filter(sql -> sql.startsWith("select") && sql.contains(" from book"))
+        .filter(sql -> !sql.contains("count("))
+        .map(sql -> sql.substring(0, sql.indexOf(" from book")))
+        .collect(Collectors.toList());
+  }
+}
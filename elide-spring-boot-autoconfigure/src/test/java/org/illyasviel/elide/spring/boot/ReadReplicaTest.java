@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import javax.sql.DataSource;
+import org.illyasviel.elide.spring.boot.datasource.ReadReplicaRoutingDataSource;
+import org.illyasviel.elide.spring.boot.datasource.RoundRobinReplicaLoadBalancer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {"elide.read-replica.enabled=true",
+    "elide.read-replica.replicas[0].url=jdbc:h2:mem:context-replica"})
+public class ReadReplicaTest {
+
+  @Autowired
+  private DataSource dataSource;
+
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate txTemplate;
+
+  @Before
+  public void before() {
+    DataSource routing = new LazyConnectionDataSourceProxy(new ReadReplicaRoutingDataSource(
+        h2("primary"), Arrays.asList(h2("replica1"), h2("replica2")),
+        new RoundRobinReplicaLoadBalancer()));
+    jdbcTemplate = new JdbcTemplate(routing);
+    txTemplate = new TransactionTemplate(new DataSourceTransactionManager(routing));
+  }
+
+  @Test
+  public void testDataSourceBean() throws Exception {
+    assertThat(dataSource).isInstanceOf(LazyConnectionDataSourceProxy.class);
+    assertThat(dataSource.isWrapperFor(ReadReplicaRoutingDataSource.class)).isTrue();
+    assertThat(dataSource.unwrap(ReadReplicaRoutingDataSource.class).getReplicas()).hasSize(1);
+  }
+
+  @Test
+  public void testReadOnlyTransaction() {
+    txTemplate.setReadOnly(true);
+    assertThat(txTemplate.<String>execute(status -> database())).isEqualTo("REPLICA1");
+    assertThat(txTemplate.<String>execute(status -> database())).isEqualTo("REPLICA2");
+    assertThat(txTemplate.<String>execute(status -> database())).isEqualTo("REPLICA1");
+  }
+
+  @Test
+  public void testReadWriteTransaction() {
+    assertThat(txTemplate.<String>execute(status -> database())).isEqualTo("PRIMARY");
+  }
+
+  @Test
+  public void testWithoutTransaction() {
+    assertThat(database()).isEqualTo("PRIMARY");
+  }
+
+  private String database() {
+    return jdbcTemplate.queryForObject("CALL DATABASE()", String.class);
+  }
+
+  private static DataSource h2(String name) {
+    return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+  }
+}
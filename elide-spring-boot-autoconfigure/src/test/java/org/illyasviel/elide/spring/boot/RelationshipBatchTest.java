@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Relationships of a page are loaded with one IN query per relationship.
+ *
+ * @author olOwOlo
+ */
+@Transactional
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {"elide.batch-fetch-size=100",
+    "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Sql(statements = {
+    "delete from book",
+    "delete from author",
+    "insert into author(id, first_name) values (1, 'a1'), (2, 'a2'), (3, 'a3'), (4, 'a4')",
+    "insert into book(id, name, author_id) values (1, 'b1', 1), (2, 'b2', 1), (3, 'b3', 2),"
+        + " (4, 'b4', 3), (5, 'b5', 4)"
+})
+public class RelationshipBatchTest {
+
+  private final static ObjectMapper objectMapper = new ObjectMapper();
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+    this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  @Test
+  public void testToMany() throws Exception {
+    graphQLQuery("{ author { edges { node { id books { edges { node { name } } } } } } }")
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.author.edges.length()").value(4))
+        .andExpect(jsonPath("$.data.author.edges[0].node.books.edges.length()").value(2));
+
+    // authors, books of all the authors
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testToOne() throws Exception {
+    graphQLQuery("{ book { edges { node { id author { edges { node { firstName } } } } } } }")
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.book.edges.length()").value(5))
+        .andExpect(jsonPath("$.data.book.edges[0].node.author.edges[0].node.firstName")
+            .value("a1"));
+
+    // books, authors of all the books
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+  }
+
+  private ResultActions graphQLQuery(String query) throws Exception {
+    return mockMvc.perform(post("/api/graphql")
+        .contentType(MediaType.APPLICATION_JSON)
+        .accept(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(
+            JsonNodeFactory.instance.objectNode().put("query", query))));
+  }
+}
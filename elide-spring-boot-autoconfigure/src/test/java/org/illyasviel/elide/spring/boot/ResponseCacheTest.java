@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.illyasviel.elide.spring.boot.jsonapi.JsonApiResponseCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Cached JSON-API responses, invalidated by the commits of Elide.
+ * Rows inserted with jdbc are not seen until then.
+ *
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = "elide.response-cache.enabled=true")
+public class ResponseCacheTest {
+
+  private static final String JSON_API_CONTENT_TYPE = "application/vnd.api+json";
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private JsonApiResponseCache responseCache;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+    responseCache.invalidateAll();
+    jdbcTemplate.update("insert into author(id, first_name) values (1001, 'a1')");
+    jdbcTemplate.update("insert into book(id, name, author_id) values (1001, 'b1', 1001)");
+  }
+
+  @After
+  public void after() {
+    jdbcTemplate.update("delete from publisher_book");
+    jdbcTemplate.update("delete from publisher");
+    jdbcTemplate.update("delete from book");
+    jdbcTemplate.update("delete from author");
+  }
+
+  @Test
+  public void testCachedUntilCommit() throws Exception {
+    mockMvc.perform(get("/api/book").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1));
+
+    jdbcTemplate.update("insert into book(id, name, author_id) values (1002, 'b2', 1001)");
+
+    mockMvc.perform(get("/api/book").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1));
+    mockMvc.perform(get("/api/book?sort=name").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(2));
+    mockMvc.perform(get("/api/book").accept(JSON_API_CONTENT_TYPE)
+        .principal(() -> "bob"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(2));
+
+    // an author is a relationship of the books
+    mockMvc.perform(post("/api/author")
+        .contentType(JSON_API_CONTENT_TYPE)
+        .accept(JSON_API_CONTENT_TYPE)
+        .content("{\"data\": {\"type\": \"author\", \"attributes\": {\"firstName\": \"a2\"}}}"))
+        .andExpect(status().isCreated());
+
+    mockMvc.perform(get("/api/book").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(2));
+  }
+
+  @Test
+  public void testErrorsAreNotCached() throws Exception {
+    mockMvc.perform(get("/api/book/1002").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isNotFound());
+
+    jdbcTemplate.update("insert into book(id, name, author_id) values (1002, 'b2', 1001)");
+
+    mockMvc.perform(get("/api/book/1002").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.id").value("1002"));
+  }
+
+  @Test
+  public void testFilterTwoRelationshipsAway() throws Exception {
+    jdbcTemplate.update("insert into publisher(id, name) values (1001, 'p1')");
+    jdbcTemplate.update("insert into publisher_book(publisher_id, books_id) values (1001, 1001)");
+    String url = "/api/publisher?filter=books.author.firstName==a2";
+    mockMvc.perform(get(url).accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(0));
+
+    mockMvc.perform(patch("/api/author/1001")
+        .contentType(JSON_API_CONTENT_TYPE)
+        .accept(JSON_API_CONTENT_TYPE)
+        .content("{\"data\": {\"type\": \"author\", \"id\": \"1001\", "
+            + "\"attributes\": {\"firstName\": \"a2\"}}}"))
+        .andExpect(status().isNoContent());
+
+    mockMvc.perform(get(url).accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1));
+  }
+}
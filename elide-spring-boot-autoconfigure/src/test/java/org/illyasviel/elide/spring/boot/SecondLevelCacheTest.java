@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import javax.persistence.EntityManagerFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Second-level cache of the Elide models, a cache hit executes no statement.
+ *
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {
+    "elide.second-level-cache.enabled=true",
+    "elide.second-level-cache.models=author,book",
+    "elide.second-level-cache.query-cache-max-results=20",
+    "elide.statistics.enabled=true",
+    "elide.statistics.response-header=true",
+})
+public class SecondLevelCacheTest {
+
+  private static final String JSON_API_CONTENT_TYPE = "application/vnd.api+json";
+  private static final String STATISTICS = "X-Elide-Statistics";
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+    jdbcTemplate.update("insert into author(id, first_name) values (1001, 'a1')");
+    jdbcTemplate.update("insert into book(id, name, author_id) values (1001, 'b1', 1001)");
+    jdbcTemplate.update("insert into book(id, name, author_id) values (1002, 'b2', 1001)");
+  }
+
+  @After
+  public void after() {
+    jdbcTemplate.update("delete from book");
+    jdbcTemplate.update("delete from author");
+    entityManagerFactory.getCache().evictAll();
+  }
+
+  @Test
+  public void testFindById() throws Exception {
+    mockMvc.perform(get("/api/author/1001").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(header().string(STATISTICS, startsWith("statements=2;")));
+    // the author, the ids of its books and the books are cached
+    mockMvc.perform(get("/api/author/1001?include=books").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.included.length()").value(2))
+        .andExpect(header().string(STATISTICS, startsWith("statements=0;")));
+  }
+
+  @Test
+  public void testSmallPagesAreCached() throws Exception {
+    mockMvc.perform(get("/api/book").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(2));
+    mockMvc.perform(get("/api/book").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(2))
+        .andExpect(header().string(STATISTICS, startsWith("statements=0;")));
+    mockMvc.perform(get("/api/book?page[size]=21").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(header().string(STATISTICS, startsWith("statements=1;")));
+  }
+
+  @Test
+  public void testWritesUpdateTheCache() throws Exception {
+    mockMvc.perform(get("/api/book").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/book/1001").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(patch("/api/book/1001")
+        .contentType(JSON_API_CONTENT_TYPE)
+        .accept(JSON_API_CONTENT_TYPE)
+        .content("{\"data\": {\"type\": \"book\", \"id\": \"1001\","
+            + " \"attributes\": {\"name\": \"b3\"}}}"))
+        .andExpect(status().isNoContent());
+
+    mockMvc.perform(get("/api/book/1001").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.attributes.name").value("b3"))
+        .andExpect(header().string(STATISTICS, startsWith("statements=0;")));
+    mockMvc.perform(get("/api/book?sort=name").accept(JSON_API_CONTENT_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data[1].attributes.name").value("b3"));
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Request statistics, relationships are not batched to provoke N+1.
+ *
+ * @author olOwOlo
+ */
+@Transactional
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+@TestPropertySource(properties = {
+    "elide.batch-fetch-size=0",
+    "elide.statistics.enabled=true",
+    "elide.statistics.max-repeated-statements=2",
+    "elide.statistics.response-header=true",
+})
+@Sql(statements = {
+    "delete from book",
+    "delete from author",
+    "insert into author(id, first_name) values (1, 'a1'), (2, 'a2'), (3, 'a3'), (4, 'a4')",
+    "insert into book(id, name, author_id) values (1, 'b1', 1), (2, 'b2', 1), (3, 'b3', 2),"
+        + " (4, 'b4', 3), (5, 'b5', 4)"
+})
+public class StatisticsTest {
+
+  private final static ObjectMapper objectMapper = new ObjectMapper();
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+  }
+
+  @Test
+  public void testJsonApiHeader() throws Exception {
+    mockMvc.perform(get("/api/author"))
+        .andExpect(status().isOk())
+        // authors, then the books of each author for the relationship linkage
+        .andExpect(header().string("X-Elide-Statistics",
+            "statements=5;entities=9;collections=4;repeated=4"));
+  }
+
+  @Test
+  public void testGraphQLNPlusOne() throws Exception {
+    String query = "{ author { edges { node { id books { edges { node { name } } } } } } }";
+    mockMvc.perform(post("/api/graphql")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(
+            JsonNodeFactory.instance.objectNode().put("query", query))))
+        .andExpect(status().isOk())
+        // authors, then the books of each author
+        .andExpect(header().string("X-Elide-Statistics",
+            "statements=5;entities=9;collections=4;repeated=4"));
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yahoo.elide.Elide;
+import com.yahoo.elide.core.DataStoreTransaction;
+import javax.persistence.EntityManager;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.illyasviel.elide.spring.boot.datastore.SpringHibernateTransaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * @author olOwOlo
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TApplication.class)
+public class TransactionTest {
+
+  @Autowired
+  private Elide elide;
+  @Autowired
+  private EntityManager entityManager;
+  @Autowired
+  private WebApplicationContext wac;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private MockMvc mockMvc;
+
+  @Before
+  public void before() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+    jdbcTemplate.update(
+        "insert into account(id, username, password) values (9001, 'alice', '123')");
+  }
+
+  @After
+  public void after() {
+    jdbcTemplate.update("delete from account where id = 9001");
+  }
+
+  @Test
+  public void testReadTransaction() throws Exception {
+    try (DataStoreTransaction tx = elide.getDataStore().beginReadTransaction()) {
+      assertThat(((SpringHibernateTransaction) tx).isReadOnly()).isTrue();
+      assertThat(TransactionSynchronizationManager.isCurrentTransactionReadOnly()).isTrue();
+
+      Session session = entityManager.unwrap(Session.class);
+      assertThat(session.isDefaultReadOnly()).isTrue();
+      assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+
+      tx.commit(null);
+    }
+  }
+
+  @Test
+  public void testWriteTransaction() throws Exception {
+    try (DataStoreTransaction tx = elide.getDataStore().beginTransaction()) {
+      assertThat(((SpringHibernateTransaction) tx).isReadOnly()).isFalse();
+      assertThat(TransactionSynchronizationManager.isCurrentTransactionReadOnly()).isFalse();
+
+      Session session = entityManager.unwrap(Session.class);
+      assertThat(session.isDefaultReadOnly()).isFalse();
+      assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.AUTO);
+
+      tx.commit(null);
+    }
+  }
+
+  @Test
+  public void testCommentedMutationIsCommitted() throws Exception {
+    graphQL("# rename\nmutation { account(op: UPDATE, data: { id: \"9001\", username: \"bob\" })"
+        + " { edges { node { id username } } } }", null);
+
+    assertThat(username()).isEqualTo("encoded username");
+  }
+
+  @Test
+  public void testNamedMutationIsCommitted() throws Exception {
+    graphQL("query accounts { account { edges { node { id } } } }\n"
+        + "mutation rename { account(op: UPDATE, data: { id: \"9001\", username: \"bob\" })"
+        + " { edges { node { id username } } } }", "rename");
+
+    assertThat(username()).isEqualTo("encoded username");
+  }
+
+  private void graphQL(String query, String operationName) throws Exception {
+    ObjectNode document = JsonNodeFactory.instance.objectNode().put("query", query);
+    if (operationName != null) {
+      document.put("operationName", operationName);
+    }
+    mockMvc.perform(post("/api/graphql")
+        .contentType(MediaType.APPLICATION_JSON)
+        .accept(MediaType.APPLICATION_JSON)
+        .content(document.toString()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.account.edges[0].node.username").value("bob"));
+  }
+
+  private String username() {
+    return jdbcTemplate.queryForObject("select username from account where id = 9001",
+        String.class);
+  }
+}
@@ -17,6 +17,7 @@
 package org.illyasviel.elide.spring.boot.domain;
 
 import com.yahoo.elide.annotation.Include;
+import com.yahoo.elide.annotation.ReadPermission;
 import com.yahoo.elide.annotation.SharePermission;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -47,6 +48,7 @@ public class Book {
   private Short price;
   private Author author;
   private Integer uniqueNumber;
+  private String isbn;
 
   @Id
   @GeneratedValue(generator = "book_g", strategy = GenerationType.SEQUENCE)
@@ -73,4 +75,9 @@ public class Book {
     return uniqueNumber;
   }
 
+  @ReadPermission(expression = "Prefab.Role.None")
+  public String getIsbn() {
+    return isbn;
+  }
+
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.illyasviel.elide.spring.boot.domain;
+
+import com.yahoo.elide.annotation.Include;
+import javax.persistence.Entity;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * @author olOwOlo
+ */
+@NoArgsConstructor
+@Setter
+@Entity
+@Include(rootLevel = true)
+public class Car extends Vehicle {
+
+  private Short seats;
+
+  public Short getSeats() {
+    return seats;
+  }
+}